@@ -0,0 +1,78 @@
+package pacman;
+
+import java.io.File;
+
+import pacman.entries.pacman.RLPacMan;
+import pacman.teaching.IntelligentStudent;
+import pacman.teaching.TeachingStrategy;
+import pacman.utils.LearningCurve;
+
+/**
+ * Branches the curves of smaller advice budgets off one run with the largest budget.
+ *
+ * With front-loaded advice (AdviseAtFirst, AdviseAtFirstCorrect), runs that differ only in budget
+ * agree until the smaller budget is spent. So the shared run keeps a copy of itself from the start
+ * of each point, and when a smaller budget runs out during the point, that copy is cut to the smaller
+ * budget and saved as the branch's checkpoint. The branch then replays only from that point on.
+ * Branches match runs from scratch when both use COMMON_SEEDS.
+ */
+public class BudgetSweep {
+
+	private final int[] budgets; // Ascending, the shared run has the last
+	private final String[] paths; // Config directory per budget
+	private final int repeat;
+	private byte[] start; // Shared run at the start of the current point
+	private int branched; // Budgets already branched off
+
+	public BudgetSweep(int[] budgets, String[] paths, int repeat) {
+		this.budgets = budgets;
+		this.paths = paths;
+		this.repeat = repeat;
+	}
+
+	/** Whether a smaller budget may still run out. */
+	public boolean pending() {
+		return branched < budgets.length-1;
+	}
+
+	/** Remember the shared run as a point begins. */
+	public void before(Checkpoint checkpoint) {
+		start = checkpoint.toBytes();
+	}
+
+	/** Branch off the budgets that ran out during the point. */
+	public void after(RLPacMan pacman) {
+		int spent = budgets[budgets.length-1] - strategy(pacman).budgetLeft();
+
+		while (pending() && spent >= budgets[branched]) {
+			String path = paths[branched];
+
+			// A resumed run may have branched this one already
+			if (!new File(path+"/curve"+repeat).exists() && !new File(path+"/checkpoint"+repeat).exists()) {
+				Checkpoint branch = Checkpoint.fromBytes(start);
+				strategy(branch.pacman).cutBudget(budgets[budgets.length-1] - budgets[branched]);
+				branch.save(path+"/checkpoint"+repeat);
+			}
+
+			branched++;
+		}
+	}
+
+	/** Budgets never spent train exactly like the shared run, so they get its curve and policy. */
+	public void finish(LearningCurve curve, RLPacMan pacman) {
+		for (; pending(); branched++) {
+			String path = paths[branched];
+			if (!new File(path+"/curve"+repeat).exists()) {
+				pacman.savePolicy(path+"/policy"+repeat);
+				Experiments.saveCurve(curve, path+"/curve"+repeat);
+			}
+		}
+	}
+
+	/** The budgeted strategy of a student. */
+	private static TeachingStrategy strategy(RLPacMan pacman) {
+		if (!(pacman instanceof IntelligentStudent) || ((IntelligentStudent)pacman).getStrategy().budgetLeft() < 0)
+			throw new IllegalArgumentException("Budget sweeps need a student with an advice budget");
+		return ((IntelligentStudent)pacman).getStrategy();
+	}
+}
@@ -0,0 +1,129 @@
+package pacman;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Random;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.entries.pacman.RLPacMan;
+import pacman.utils.LearningCurve;
+
+/**
+ * Everything a curve in progress needs to continue exactly where it stopped: the learner
+ * (with its teacher, strategy, counters and visited states), the random number generators,
+ * and the points measured so far.
+ */
+public class Checkpoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public final int point; // Last point measured
+	public final int dataLength; // Of each point's extra info
+	public final LearningCurve curve;
+	public final RLPacMan pacman;
+	public final Random rng;
+	public final StandardGhosts ghosts;
+	public final long[] pendingSeeds; // Games of the last point's test if it was still running, else null
+	public final double[] pendingData; // That point's extra info, not yet in the curve
+
+	public Checkpoint(int point, int dataLength, LearningCurve curve, RLPacMan pacman, Random rng, StandardGhosts ghosts) {
+		this(point, dataLength, curve, pacman, rng, ghosts, null, null);
+	}
+
+	/** A checkpoint whose last point is still to be scored, by testing the saved learner on the same games. */
+	public Checkpoint(int point, int dataLength, LearningCurve curve, RLPacMan pacman, Random rng, StandardGhosts ghosts, long[] pendingSeeds, double[] pendingData) {
+		this.point = point;
+		this.dataLength = dataLength;
+		this.curve = curve;
+		this.pacman = pacman;
+		this.rng = rng;
+		this.ghosts = ghosts;
+		this.pendingSeeds = pendingSeeds;
+		this.pendingData = pendingData;
+	}
+
+	/** Save through a temporary file, so a crash mid-write keeps the previous checkpoint. */
+	public void save(String filename) {
+		File target = new File(filename);
+		File tmp = null;
+
+		try {
+			tmp = File.createTempFile(target.getName()+".", ".tmp", target.getAbsoluteFile().getParentFile());
+			ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeObject(this);
+			} finally {
+				out.close();
+			}
+		} catch (Exception e) {
+			System.out.println("ERROR: could not write to "+filename);
+			if (tmp != null)
+				tmp.delete();
+			e.printStackTrace();
+			return;
+		}
+
+		if (!tmp.renameTo(target)) {
+			target.delete();
+			if (!tmp.renameTo(target))
+				System.out.println("ERROR: could not rename "+tmp.getPath());
+		}
+	}
+
+	/** Serialize into memory, for a copy that later training will not touch. */
+	public byte[] toBytes() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(this);
+			out.close();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/** Deserialize a fresh copy from memory. */
+	public static Checkpoint fromBytes(byte[] bytes) {
+		try {
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+			return (Checkpoint)in.readObject();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/** Load a checkpoint, or return null if there is none to resume. */
+	public static Checkpoint load(String filename) {
+		File file = new File(filename);
+		if (!file.exists())
+			return null;
+
+		try {
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				return (Checkpoint)in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			System.out.println("ERROR: could not read from "+filename+" ("+e+"), starting the curve over");
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/** Remove a checkpoint once its curve is saved. */
+	public static void delete(String filename) {
+		new File(filename).delete();
+	}
+}
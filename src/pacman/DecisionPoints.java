@@ -0,0 +1,72 @@
+package pacman;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Macro-actions for Ms Pac-Man: once she picks a move, she keeps going along her corridor without
+ * being asked again until the next decision point. That is a junction, a ghost within range of her,
+ * or an event that changes the situation: a power pill eaten, a ghost eaten or recovering, or a life
+ * lost, after which she starts again elsewhere.
+ * Ordinary pills do not stop her, since they line most corridors; their points simply add up
+ * over the macro-action, and the learner discounts its next estimate by the ticks taken.
+ *
+ * With Experiments.DECISION_RANGE at 0 there are no macro-actions, and every tick is a decision.
+ */
+public class DecisionPoints {
+
+	private static final GHOST[] GHOSTS = GHOST.values();
+
+	/** Whether Ms Pac-Man has a choice to make here: anything but going on along a corridor with no ghost near. */
+	public static boolean reached(Game game, int range) {
+		int node = game.getPacmanCurrentNodeIndex();
+		if (game.getPossibleMoves(node, game.getPacmanLastMoveMade()).length != 1)
+			return true;
+
+		for (GHOST ghost : GHOSTS)
+			if (game.getGhostLairTime(ghost) == 0 && game.getShortestPathDistance(node, game.getGhostCurrentNodeIndex(ghost)) <= range)
+				return true;
+
+		return false;
+	}
+
+	/** Make a move, then carry it along the corridor until the next decision point, at most maxTicks in all.
+	 *  The ghosts move every tick as usual. Returns the ticks played, at least one. */
+	public static int advance(Game game, Game view, MOVE move, StandardGhosts ghosts, int maxTicks) {
+		int range = Experiments.DECISION_RANGE;
+		int ticks = 0;
+
+		while (true) {
+			int powerPills = game.getNumberOfActivePowerPills();
+			int edible = countEdible(game);
+			int lives = game.getPacmanNumberOfLivesRemaining();
+
+			game.advanceGame(move, ghosts.getMove(view, -1));
+			ticks++;
+
+			if (range <= 0 || ticks >= maxTicks || game.gameOver() || reached(game, range))
+				break;
+			if (game.getNumberOfActivePowerPills() != powerPills || countEdible(game) != edible)
+				break;
+			if (game.getPacmanNumberOfLivesRemaining() != lives)
+				break;
+
+			// The only way on
+			int node = game.getPacmanCurrentNodeIndex();
+			move = game.getPossibleMoves(node, game.getPacmanLastMoveMade())[0];
+		}
+
+		return ticks;
+	}
+
+	/** Ghosts edible now, which changes when one is eaten or recovers. */
+	private static int countEdible(Game game) {
+		int count = 0;
+		for (GHOST ghost : GHOSTS)
+			if (game.getGhostEdibleTime(ghost) > 0)
+				count++;
+		return count;
+	}
+}
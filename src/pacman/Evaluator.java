@@ -0,0 +1,166 @@
+package pacman;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.entries.pacman.GreedyPacMan;
+import pacman.entries.pacman.RLPacMan;
+import pacman.game.Game;
+import pacman.game.ReadOnlyGame;
+import pacman.utils.Seeds;
+
+/**
+ * Plays test episodes of a frozen policy on a pool of worker threads.
+ *
+ * Game seeds are drawn from the caller's Random exactly as Experiments.evaluate draws them,
+ * so the training episodes that follow see the same games either way. Each test episode
+ * gets its own ghosts, seeded from its game, so the score does not depend on thread timing.
+ * With Experiments.COMMON_SEEDS the in-order tests seed their ghosts the same way.
+ */
+public class Evaluator {
+
+	private final ExecutorService pool;
+	private final int threads;
+
+	/** Start a pool of worker threads, which will not keep the JVM alive. */
+	public Evaluator(int threads) {
+		this.threads = threads;
+		pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "evaluator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/** Snapshot the learner's policy and start its test episodes. */
+	public Pending submit(RLPacMan pacman, int width, Random rng) {
+		long[] seeds = new long[width];
+		for (int i=0; i<width; i++)
+			seeds[i] = rng.nextLong();
+		return submit(pacman, seeds);
+	}
+
+	/** Snapshot the learner's policy and start test episodes on some games. With Experiments.TEST_SE,
+	 *  only the first batch starts now, and the rest only while the score is still uncertain. */
+	public Pending submit(RLPacMan pacman, long[] seeds) {
+		Pending pending = new Pending(this, new GreedyPacMan(pacman.getPolicyLearner()), seeds);
+		pending.start(Experiments.TEST_SE > 0 ? Math.max(Experiments.MIN_TEST, threads) : seeds.length);
+		return pending;
+	}
+
+	/** Estimate the current performance of a learner. */
+	public double evaluate(RLPacMan pacman, int width, Random rng) {
+		return submit(pacman, width, rng).score();
+	}
+
+	/** Stop the worker threads once queued episodes are done. */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/** Play one greedy test episode. */
+	private static int episode(GreedyPacMan policy, long seed) {
+		Game game = new Game(seed);
+		Game view = new ReadOnlyGame(game);
+		StandardGhosts ghosts = new StandardGhosts(Seeds.split(seed, Seeds.GHOSTS));
+
+		int length = 0;
+		while(!game.gameOver() & length<15000)
+			length += DecisionPoints.advance(game, view, policy.getMove(view, -1), ghosts, 15000-length);
+
+		return game.getScore();
+	}
+
+	/**
+	 * Test episodes that may still be running.
+	 */
+	public static class Pending {
+
+		private final Evaluator evaluator;
+		private final GreedyPacMan policy;
+		private final long[] seeds; // Games to test on, at most
+		private final List<Future<Integer>> episodes = new ArrayList<Future<Integer>>();
+		private Double score; // Once known
+
+		private Pending(Evaluator evaluator, GreedyPacMan policy, long[] seeds) {
+			this.evaluator = evaluator;
+			this.policy = policy;
+			this.seeds = seeds;
+		}
+
+		/** A score that is already known. */
+		public Pending(double score) {
+			this(null, null, new long[0]);
+			this.score = score;
+		}
+
+		/** Start up to count more episodes. */
+		private void start(int count) {
+			for (int i=0; i<count && episodes.size()<seeds.length; i++) {
+				final long seed = seeds[episodes.size()];
+				episodes.add(evaluator.pool.submit(new Callable<Integer>() {
+					public Integer call() {
+						return episode(policy, seed);
+					}
+				}));
+			}
+		}
+
+		/** Whether the score is already known, so score() will not wait. */
+		public boolean isDone() {
+			return score != null;
+		}
+
+		/** Games the test plays, so it can be submitted again. */
+		public long[] getSeeds() {
+			return seeds;
+		}
+
+		/** Wait for episodes in order, until all are done or Experiments.enoughTests, and average their scores. */
+		public double score() {
+			if (score != null)
+				return score;
+
+			double sumScore = 0;
+			double sumSquares = 0;
+			int n = 0;
+
+			while (n < seeds.length) {
+				if (n == episodes.size())
+					start(evaluator.threads);
+
+				int episodeScore;
+				try {
+					episodeScore = episodes.get(n++).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				}
+
+				sumScore += episodeScore;
+				sumSquares += (double)episodeScore*episodeScore;
+				if (Experiments.enoughTests(n, sumScore, sumSquares))
+					break;
+			}
+
+			// Episodes no longer needed
+			for (int i=n; i<episodes.size(); i++)
+				episodes.get(i).cancel(false);
+
+			score = sumScore/n;
+			return score;
+		}
+	}
+}
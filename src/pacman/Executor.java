@@ -4,11 +4,14 @@ import static pacman.game.Constants.DELAY;
 import static pacman.game.Constants.INTERVAL_WAIT;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.Random;
@@ -30,11 +33,20 @@ import pacman.game.GameView;
  */
 public class Executor
 {	
+	private static final int REPLAY_MAGIC=0x504D5231;	//"PMR1", starts binary replays
+	
 	/**
 	 * The main method.
 	 */
 	public static void main(String[] args)
 	{
+		// Convert a text replay to binary
+		if(args.length==3 && args[0].equals("convert"))
+		{
+			convertReplay(args[1],args[2]);
+			return;
+		}
+		
 		// Play a game
 		new Executor().runGameTimed(new HumanController(new KeyBoardInput()), new StandardGhosts(), true);
 	}
@@ -219,7 +231,8 @@ public class Executor
 	 */
 	public void runGameTimedRecorded(Controller<MOVE> pacManController,Controller<EnumMap<GHOST,MOVE>> ghostController,boolean visual,String fileName)
 	{
-		StringBuilder replay=new StringBuilder();
+		ByteArrayOutputStream replay=new ByteArrayOutputStream();
+		ByteBuffer state=ByteBuffer.allocate(1<<16);
 		Game game=new Game(0);
 		GameView gv=null;
 
@@ -234,6 +247,8 @@ public class Executor
 		new Thread(pacManController).start();
 		new Thread(ghostController).start();
 
+		state.putInt(REPLAY_MAGIC);
+
 		while(!game.gameOver())
 		{
 			pacManController.update(game.copy(),System.currentTimeMillis()+DELAY);
@@ -253,12 +268,14 @@ public class Executor
 			if(visual)
 				gv.repaint();
 
-			replay.append(game.getGameState()+"\n");
+			game.writeState(state);
+			replay.write(state.array(),0,state.position());
+			state.clear();
 		}
 
 		pacManController.terminate();
 		ghostController.terminate();
-		saveToFile(replay.toString(),fileName,false);
+		saveReplay(replay,fileName);
 	}
 
 	/**
@@ -269,16 +286,22 @@ public class Executor
 	 */
 	public void replayGame(String fileName,boolean visual)
 	{
-		ArrayList<String> timeSteps=loadReplay(fileName);
+		ByteBuffer timeSteps=loadBinaryReplay(fileName);
+		if(timeSteps==null)
+		{
+			System.out.println("ERROR: "+fileName+" is not a binary replay; convert it with Executor convert <old> <new>");
+			return;
+		}
+		
 		Game game=new Game(0);
 		GameView gv=null;
 
 		if(visual)
 			gv=new GameView(game).showGame();
 
-		for(int j=0;j<timeSteps.size();j++)
+		while(timeSteps.hasRemaining())
 		{			
-			game.setGameState(timeSteps.get(j));
+			game.readState(timeSteps);
 
 			try
 			{
@@ -313,7 +336,71 @@ public class Executor
 		}
 	}  
 
-	//load a replay
+	//save a binary replay
+	public static void saveReplay(ByteArrayOutputStream data,String name)
+	{
+		try 
+		{
+			FileOutputStream outS=new FileOutputStream(name);
+			data.writeTo(outS);
+			outS.close();
+		} 
+		catch (IOException e)
+		{
+			System.out.println("Could not save data!");	
+		}
+	}
+
+	//load a binary replay, positioned at the first state, or null if the file is not one
+	private static ByteBuffer loadBinaryReplay(String fileName)
+	{
+		try
+		{
+			RandomAccessFile file=new RandomAccessFile(fileName,"r");
+			byte[] data=new byte[(int)file.length()];
+			file.readFully(data);
+			file.close();
+
+			ByteBuffer replay=ByteBuffer.wrap(data);
+			if(replay.remaining()<4 || replay.getInt()!=REPLAY_MAGIC)
+				return null;
+			return replay;
+		}
+		catch(IOException ioe)
+		{
+			ioe.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Convert a replay saved as one getGameState() string per line to the binary format.
+	 *
+	 * @param textFileName The old replay
+	 * @param binaryFileName The file to write the binary replay to
+	 */
+	public static void convertReplay(String textFileName,String binaryFileName)
+	{
+		ArrayList<String> timeSteps=loadReplay(textFileName);
+		ByteArrayOutputStream replay=new ByteArrayOutputStream();
+		ByteBuffer state=ByteBuffer.allocate(1<<16);
+		Game game=new Game(0);
+
+		state.putInt(REPLAY_MAGIC);
+
+		for(int j=0;j<timeSteps.size();j++)
+		{
+			game.setGameState(timeSteps.get(j));
+			game.writeState(state);
+			replay.write(state.array(),0,state.position());
+			state.clear();
+		}
+
+		saveReplay(replay,binaryFileName);
+		System.out.println("Converted "+timeSteps.size()+" states, "+replay.size()+" bytes");
+	}
+
+	//load a text replay
 	private static ArrayList<String> loadReplay(String fileName)
 	{
 		ArrayList<String> replay=new ArrayList<String>();
@@ -7,11 +7,17 @@ import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import pacman.controllers.KeyBoardInput;
 import pacman.entries.ghosts.StandardGhosts;
 import pacman.entries.pacman.BasicRLPacMan;
+import pacman.entries.pacman.CachedFeatureSet;
 import pacman.entries.pacman.CustomFeatureSet;
 import pacman.entries.pacman.DepthFeatureSet;
 import pacman.entries.pacman.FeatureSet;
@@ -23,6 +29,7 @@ import pacman.game.Constants.MOVE;
 import pacman.game.Game;
 import pacman.game.GameView;
 import pacman.game.NoMoveGhosts;
+import pacman.game.ReadOnlyGame;
 import pacman.teaching.AdviseAtFirst;
 import pacman.teaching.AdviseAtFirstCorrect;
 //import pacman.teaching.AdviseAtFirstCorrect;
@@ -45,6 +52,7 @@ import pacman.teaching.StudentUncertaintyAndMistakeAdviceTop2;
 import pacman.teaching.TeachingStrategy;
 import pacman.utils.DataFile;
 import pacman.utils.LearningCurve;
+import pacman.utils.Seeds;
 import pacman.utils.Stats;
 
 public class Experiments {
@@ -57,6 +65,7 @@ public class Experiments {
 	
 	
 	public static int BUDGET = 1000; // Advice budget (1000)
+	public static int[] BUDGETS = null; // Advice budgets to branch off one shared run (null = just BUDGET; sequential runs only)
 	public static int ATTBUDGET =  Integer.MAX_VALUE; //train100= 72382, train 200=163589, train0=69846
 
 	public static int REPEATS = 30; // Curves to average (30)
@@ -64,6 +73,29 @@ public class Experiments {
 	public static int TEST = 30; // Test episodes per point (30)
 
 	public static int TRAIN = 10; // Train episodes per point (10)
+	public static int THREADS = 1; // Repeats trained at once (1 = sequential)
+	public static long MEMORY = Runtime.getRuntime().maxMemory()/(1<<20); // Heap (MB) the scheduler may fill
+	public static long JOB_MEMORY = 256; // Heap (MB) one repeat needs
+	public static int EVAL_THREADS = 1; // Test episodes played at once (1 = in order, by the learner itself)
+	public static boolean OVERLAP = false; // Test each point while the next one trains (needs EVAL_THREADS > 1)
+	public static int CHECKPOINT = 1; // Points between saved checkpoints (0 = never)
+	public static boolean LOG_POINTS = false; // Test only at points spaced by sqrt(2), interpolating the rest
+	public static double TEST_SE = 0; // Stop testing a point once its standard error is below this (0 = all TEST)
+	public static int MIN_TEST = 5; // Test episodes before TEST_SE may stop
+	public static boolean COMMON_SEEDS = false; // Repeat i sees the same games, ghosts and exploration in every config
+	public static long SEED = 0; // Base of the common seeds
+	public static double CI_WIDTH = 0; // Stop a config once its 95% interval on area is narrower (0 = run all REPEATS)
+	public static String BASELINE = null; // Config to stop early against, by Welch test corrected for repeated looks (e.g. "baseline_always_false")
+	public static int MIN_REPEATS = 5; // Curves before a config may stop early
+	public static boolean RACE = false; // Race the variants of each sweep instead of training them all fully
+	public static int RACE_REPEATS = 5; // Curves per variant on the first rung of a race
+	public static int RACE_RUNGS = 3; // Lengths raced to: LENGTH/4, LENGTH/2, LENGTH
+	public static double RACE_KEEP = 0.5; // Most variants kept at each rung (1 = drop only significantly worse)
+	public static long FARM_HEARTBEAT = 10000; // Milliseconds between renewals of a worker's lease
+	public static long FARM_LEASE = 120000; // Milliseconds without renewal before a job is handed out again
+	public static int FEATURE_CACHE = 0; // Features remembered per learner by position hash (0 = none, e.g. 1<<14)
+	public static int DECISION_RANGE = 0; // Ms Pac-Man acts only at junctions, events and ghosts this close (0 = every tick)
+	private static Evaluator evaluator; // Shared by all repeats
 
 	public static Random rng = new Random();
 //	public static StandardGhosts ghosts = new StandardGhosts();
@@ -85,7 +117,55 @@ public class Experiments {
 //		for (int i =0;i<20;i++)
 //			watch(pacman);
 //		int i = 1/0;
+		// Only the sequential loop below sweeps budgets
+		if (BUDGETS != null && (args[0].equals("coordinator") || args[0].equals("worker"))) {
+			System.out.println("ERROR: BUDGETS is only swept in a sequential run, not by a farm");
+			return;
+		}
+		
+		// Farm of worker JVMs sharing a queue directory
+		if (args[0].equals("coordinator")) {
+			new Farm(args[1]).coordinate(args[2]);
+			return;
+		}
+		if (args[0].equals("worker")) {
+			final Farm farm = new Farm(args[1]);
+			int threads = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+			for (int t=0; t<threads; t++) {
+				new Thread(new Runnable() {
+					public void run() {
+						farm.work();
+					}
+				}, "worker").start();
+			}
+			return;
+		}
+		
 		String filename = args[0];
+		if (args.length > 1)
+			THREADS = Integer.parseInt(args[1]);
+		
+		if (BUDGETS != null && (RACE || THREADS > 1)) {
+			System.out.println("ERROR: BUDGETS is only swept in a sequential run, with THREADS = 1 and RACE off");
+			return;
+		}
+		
+		// Sweeps drop weak variants early
+		if (RACE) {
+			Race race = new Race();
+			race.load(filename);
+			race.run();
+			return;
+		}
+		
+		// All config lines share one pool of workers
+		if (THREADS > 1) {
+			Scheduler scheduler = new Scheduler(THREADS, MEMORY, JOB_MEMORY);
+			scheduler.load(filename);
+			scheduler.run();
+			return;
+		}
+		
 		DataFile file = new DataFile(filename);
 		
 		while(file.hasNextLine())
@@ -98,7 +178,10 @@ public class Experiments {
 			boolean teacherRelease = Boolean.parseBoolean(params[3]);
 //			DIR= params[4];
 			System.out.println("starting");
-	 		train(teachingStrategy,0,mode, attentionMode, teacherRelease);
+			if (BUDGETS != null)
+				sweepBudgets(teachingStrategy, mode, attentionMode, teacherRelease);
+			else
+	 			train(teachingStrategy,0,mode, attentionMode, teacherRelease);
 		}
 //		watch(create("independent", "teacher","something"));
 //		
@@ -122,11 +205,16 @@ public class Experiments {
 	}
 	
 	public static void writeConfig(String filename, String initiator, boolean teacherRelease)
+	{
+		writeConfig(filename, BUDGET, initiator, teacherRelease);
+	}
+	
+	public static void writeConfig(String filename, int budget, String initiator, boolean teacherRelease)
 	{
 		DataFile file = new DataFile(filename);
 		file.clear();
 		
-		file.append("budget = "+BUDGET+"\n");
+		file.append("budget = "+budget+"\n");
 		file.append("pacmanLives = "+ Constants.NUM_LIVES+"\n");
 		file.append("initiator = "+initiator+"\n");
 		file.append("teacher release = "+Boolean.toString(teacherRelease)+"\n");
@@ -136,9 +224,21 @@ public class Experiments {
 
 	/** Set up a learner. */
 	public static RLPacMan create(String learner, String initiator, String attentionMode, boolean teacherRelease) {
+		return create(learner, initiator, attentionMode, teacherRelease, BUDGET);
+	}
+	
+	/** Set up a learner whose teaching strategy has a given advice budget. */
+	public static RLPacMan create(String learner, String initiator, String attentionMode, boolean teacherRelease, int budget) {
 		
 		FeatureSet teacherProto = TEACHER.startsWith("custom") ? new CustomFeatureSet() : new DepthFeatureSet();
 		FeatureSet studentProto = STUDENT.startsWith("custom") ? new CustomFeatureSet() : new DepthFeatureSet();
+		
+		// Remember features by position, in one cache when teacher and student share a feature set
+		if (FEATURE_CACHE > 0) {
+			boolean shared = (teacherProto.getClass() == studentProto.getClass());
+			teacherProto = new CachedFeatureSet(teacherProto, FEATURE_CACHE);
+			studentProto = shared ? teacherProto : new CachedFeatureSet(studentProto, FEATURE_CACHE);
+		}
 
 		// Lone teacher
 		if (learner.startsWith("teacher")) {
@@ -173,13 +273,13 @@ public class Experiments {
 			
 			// Front-load the advice budget
 			if (learner.startsWith("baseline")) {
-				TeachingStrategy strategy = new AdviseAtFirst();
+				TeachingStrategy strategy = new AdviseAtFirst(budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
 			
 			if (learner.startsWith("cbaseline")) {
-				TeachingStrategy strategy = new AdviseAtFirstCorrect();
+				TeachingStrategy strategy = new AdviseAtFirstCorrect(budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -187,7 +287,7 @@ public class Experiments {
 			// Advise in important states
 			if (learner.startsWith("advise")) {
 				int threshold = Integer.parseInt(learner.substring(6));
-				TeachingStrategy strategy = new AdviseImportantStates(threshold);
+				TeachingStrategy strategy = new AdviseImportantStates(threshold, budget);
 //				return new IntelligentStudent(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -195,7 +295,7 @@ public class Experiments {
 			// Correct important mistakes
 			if (learner.startsWith("correct")) {
 				int threshold = Integer.parseInt(learner.substring(7));
-				TeachingStrategy strategy = new CorrectImportantMistakes(threshold);
+				TeachingStrategy strategy = new CorrectImportantMistakes(threshold, budget);
 //				return new IntelligentStudent(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -204,7 +304,7 @@ public class Experiments {
 			if (learner.startsWith("attcorrect")) {
 				int att = Integer.parseInt(learner.substring(10,learner.length() - 3));
 				int threshold = Integer.parseInt(learner.substring(learner.length() - 3));
-				TeachingStrategy strategy = new CorrectImportantMistakesAttention(att,threshold);
+				TeachingStrategy strategy = new CorrectImportantMistakesAttention(att,threshold,budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -212,7 +312,7 @@ public class Experiments {
 			// Correct important mistakes, based on diff between teacher and student action q-values
 			if (learner.startsWith("dcorrect")) {
 				int threshold = Integer.parseInt(learner.substring(8));
-				TeachingStrategy strategy = new CorrectImportantMistakesDiffStudent(threshold);
+				TeachingStrategy strategy = new CorrectImportantMistakesDiffStudent(threshold, budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -221,7 +321,7 @@ public class Experiments {
 			// Advise in important states with predicted mistakes
 			if (learner.startsWith("predict")) {
 				int threshold = Integer.parseInt(learner.substring(7));
-				TeachingStrategy strategy = new PredictImportantMistakes(threshold);
+				TeachingStrategy strategy = new PredictImportantMistakes(threshold, budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -229,7 +329,7 @@ public class Experiments {
 			// Advise randomly
 			if (learner.startsWith("random")) {
 				int prob = Integer.parseInt(learner.substring(6));
-				TeachingStrategy strategy = new AdviseRandom(prob);
+				TeachingStrategy strategy = new AdviseRandom(prob, budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -237,7 +337,7 @@ public class Experiments {
 			// Correct mistakes randomly
 			if (learner.startsWith("crandom")) {
 				int prob = Integer.parseInt(learner.substring(7));
-				TeachingStrategy strategy = new CorrectMistakesRandomly(prob);
+				TeachingStrategy strategy = new CorrectMistakesRandomly(prob, budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -245,7 +345,7 @@ public class Experiments {
 			//Student initiated advice based on uncertainty (low q-value diff)
 			if (learner.startsWith("stuunc")) {
 				int threshold = Integer.parseInt(learner.substring(6));
-				TeachingStrategy strategy = new StudentUncertaintyAdvice(threshold);
+				TeachingStrategy strategy = new StudentUncertaintyAdvice(threshold, budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}	
@@ -253,7 +353,7 @@ public class Experiments {
 			//Student initiated advice based on uncertainty (low q-value diff), only use advice if student was wrong
 			if (learner.startsWith("cstuunc")) {
 				int threshold = Integer.parseInt(learner.substring(7));
-				TeachingStrategy strategy = new StudentUncertaintyAndMistakeAdvice(threshold);
+				TeachingStrategy strategy = new StudentUncertaintyAndMistakeAdvice(threshold, budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}	
@@ -261,14 +361,14 @@ public class Experiments {
 			//Student initiated advice based on uncertainty (low q-value diff), only use advice if student was wrong
 			if (learner.startsWith("ctstuunc")) {
 				int threshold = Integer.parseInt(learner.substring(8));
-				TeachingStrategy strategy = new StudentUncertaintyAndMistakeAdviceTop2(threshold);
+				TeachingStrategy strategy = new StudentUncertaintyAndMistakeAdviceTop2(threshold, budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
 			
 			//Student initiated advice based on uncertainty (lower q-value diff than average), only use advice if student was wrong
 			if (learner.startsWith("avgcstuunc")) {
-				TeachingStrategy strategy = new StudentAvgUncertaintyAndMistakeAdvice();
+				TeachingStrategy strategy = new StudentAvgUncertaintyAndMistakeAdvice(budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -276,7 +376,7 @@ public class Experiments {
 			//Student initiated advice based on importance (high q-value diff), only use advice if student was wrong
 			if (learner.startsWith("cstuimp")) {
 				int threshold = Integer.parseInt(learner.substring(7));
-				TeachingStrategy strategy = new StudentImportanceAndMistakeAdvice(threshold);
+				TeachingStrategy strategy = new StudentImportanceAndMistakeAdvice(threshold, budget);
 //				return new Student(teacher, student, strategy, initiator);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
 			}
@@ -284,7 +384,7 @@ public class Experiments {
 			//Student initiated asking, but teacher decides whether to advise
 			if (learner.startsWith("askcstuunc")) {
 				int threshold = Integer.parseInt(learner.substring(10));
-				TeachingStrategy strategy = new CorrectImportantMistakes(200);
+				TeachingStrategy strategy = new CorrectImportantMistakes(200, budget);
 				AttentionStrategy attent = new AskAttentionBasedOnCertainty(threshold);
 //				return new Student(teacher, student, strategy, initiator, attent);
 				return new IntelligentStudent(teacher, student, strategy, initiator, attentionMode,teacherRelease);
@@ -329,66 +429,360 @@ public class Experiments {
 			curves[i] = new LearningCurve(LENGTH+1, TRAIN, DIR+"/"+learnerCombined+"/curve"+i);
 		
 		// Begin new curves
+		StoppingRule rule = new StoppingRule(learnerCombined);
+		if (THREADS > 1) {
+			trainParallel(learner, initiator, attentionMode, teacherRelease, curves, start, rule);
+		}
+		else {
+			for (int i=start; i<REPEATS; i++) {
+				String filename = DIR+"/"+learnerCombined+"/curve"+i;
+				if (new File(filename).exists())
+					curves[i] = new LearningCurve(LENGTH+1, TRAIN, filename);
+				else if (rule.enough(curves))
+					break;
+				else if (COMMON_SEEDS)
+					curves[i] = trainCurve(learner, initiator, attentionMode, teacherRelease, i, games(i), new StandardGhosts());
+				else
+					curves[i] = trainCurve(learner, initiator, attentionMode, teacherRelease, i, rng, ghosts);
+				
+				saveAverage(curves, DIR+"/"+learnerCombined+"/avg_curve");
+			}
+		}
+		
+		System.out.println("Done.");
+	}
+	
+	/** Generate the remaining curves on a pool of THREADS workers.
+	 *  Each repeat gets its own learner, Random and ghosts; see games() for where the seeds come from.
+	 *  Repeats not yet started are skipped once the rule has enough curves. */
+	private static void trainParallel(final String learner, final String initiator, final String attentionMode, final boolean teacherRelease, final LearningCurve[] curves, int start, final StoppingRule rule) {
+		final String learnerCombined = learner+"_"+attentionMode+"_"+teacherRelease;
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		
 		for (int i=start; i<REPEATS; i++) {
-			curves[i] = new LearningCurve(LENGTH+1, TRAIN);
+			String filename = DIR+"/"+learnerCombined+"/curve"+i;
+			if (new File(filename).exists()) {
+				curves[i] = new LearningCurve(LENGTH+1, TRAIN, filename);
+				continue;
+			}
+			
+			final int repeat = i;
+			final Random games = games(i);
+			results.add(pool.submit(new Runnable() {
+				public void run() {
+					synchronized (curves) {
+						if (rule.enough(curves))
+							return;
+					}
+					LearningCurve curve = trainCurve(learner, initiator, attentionMode, teacherRelease, repeat, games, new StandardGhosts());
+					
+					// Average all curves finished so far
+					synchronized (curves) {
+						curves[repeat] = curve;
+						saveAverage(curves, DIR+"/"+learnerCombined+"/avg_curve");
+					}
+				}
+			}));
+		}
+		
+		pool.shutdown();
+		for (Future<?> result : results) {
+			try {
+				result.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+	}
+	
+	/** Generate curves for every budget in BUDGETS, each under DIR/budget{b}.
+	 *  Smaller budgets branch off one shared run with the largest, see BudgetSweep;
+	 *  any branch that was not saved is trained on its own. */
+	public static void sweepBudgets(String learner, String initiator, String attentionMode, boolean teacherRelease) {
+		String learnerCombined = learner+"_"+attentionMode+"_"+teacherRelease;
+		int[] budgets = BUDGETS.clone();
+		Arrays.sort(budgets);
+		int last = budgets.length-1;
+		
+		String[] paths = new String[budgets.length];
+		LearningCurve[][] curves = new LearningCurve[budgets.length][REPEATS];
+		for (int b=0; b<budgets.length; b++) {
+			paths[b] = DIR+"/budget"+budgets[b]+"/"+learnerCombined;
+			new File(paths[b]).mkdirs();
+			writeConfig(paths[b]+"/config.txt", budgets[b], initiator, teacherRelease);
+		}
+		
+		for (int i=0; i<REPEATS; i++) {
 			
-			System.out.println("Training "+DIR+"/"+learnerCombined+" "+i+"...");
-			RLPacMan pacman = create(learner,initiator,attentionMode,teacherRelease);
+			// Shared run
+			if (!new File(paths[last]+"/curve"+i).exists())
+				trainCurve(paths[last], learner, initiator, attentionMode, teacherRelease, budgets[last], i, games(i), new StandardGhosts(), LENGTH, new BudgetSweep(budgets, paths, i), null);
+			
+			// Branches continue from their checkpoints
+			for (int b=0; b<budgets.length; b++) {
+				String filename = paths[b]+"/curve"+i;
+				if (new File(filename).exists())
+					curves[b][i] = new LearningCurve(LENGTH+1, TRAIN, filename);
+				else
+					curves[b][i] = trainCurve(paths[b], learner, initiator, attentionMode, teacherRelease, budgets[b], i, games(i), new StandardGhosts(), LENGTH, null, null);
+				
+				saveAverage(curves[b], paths[b]+"/avg_curve");
+			}
+		}
+		
+		System.out.println("Done.");
+	}
+	
+	/** Train a new learner for one curve, and save the curve and policy.
+	 *  Continues from the curve's checkpoint if an earlier run left one. */
+	public static LearningCurve trainCurve(String learner, String initiator, String attentionMode, boolean teacherRelease, int i, Random rng, StandardGhosts ghosts) {
+		return trainCurve(learner, initiator, attentionMode, teacherRelease, i, rng, ghosts, LENGTH);
+	}
+	
+	/** Train one curve up to point until. Short of LENGTH, the partial curve is returned
+	 *  and left in the checkpoint for a later call to continue. */
+	public static LearningCurve trainCurve(String learner, String initiator, String attentionMode, boolean teacherRelease, int i, Random rng, StandardGhosts ghosts, int until) {
+		String path = DIR+"/"+learner+"_"+attentionMode+"_"+teacherRelease;
+		return trainCurve(path, learner, initiator, attentionMode, teacherRelease, BUDGET, i, rng, ghosts, until, null, null);
+	}
+	
+	/** Train one curve into a config directory, optionally branching smaller budgets off it.
+	 *  For a Farm job, the curve and policy are written under the job's suffix for Farm to commit,
+	 *  and null is returned as soon as the job loses its lease. */
+	static LearningCurve trainCurve(String path, String learner, String initiator, String attentionMode, boolean teacherRelease, int budget, int i, Random rng, StandardGhosts ghosts, int until, BudgetSweep sweep, Farm.Job job) {
+		String checkpointFile = path+"/checkpoint"+i;
+		Checkpoint checkpoint = Checkpoint.load(checkpointFile);
+		
+		LearningCurve curve;
+		RLPacMan pacman;
+		int dataLength; // Of each point's extra info
+		int next; // Point to train for next
+		double[][] points = new double[LENGTH+1][];
+		Evaluator.Pending[] tests = new Evaluator.Pending[LENGTH+1];
+		
+		if (checkpoint != null) {
+			System.out.println("Resuming "+path+" "+i+" after point "+checkpoint.point+"...");
+			curve = checkpoint.curve;
+			pacman = checkpoint.pacman;
+			rng = checkpoint.rng;
+			ghosts = checkpoint.ghosts;
+			dataLength = checkpoint.dataLength;
+			next = checkpoint.point+1;
+			
+			// A test that was still running is played again, by the same policy on the same games
+			if (checkpoint.pendingSeeds != null) {
+				points[checkpoint.point] = checkpoint.pendingData;
+				tests[checkpoint.point] = evaluator().submit(pacman, checkpoint.pendingSeeds);
+			}
+		}
+		else {
+			System.out.println("Training "+path+" "+i+"...");
+			curve = new LearningCurve(LENGTH+1, TRAIN);
+			pacman = create(learner,initiator,attentionMode,teacherRelease,budget);
 			pacman.loadVisitedState("myData/"+TEACHER+"/student100/visited");
-
+			
 			// First point
-			double[] initialData = pacman.episodeData();
-			double initialScore = evaluate(pacman, TEST);
-			curves[i].set(0, initialScore, initialData);
+			points[0] = pacman.episodeData();
+			dataLength = points[0].length;
+			tests[0] = test(pacman, rng, ghosts, true);
+			next = 1;
+		}
+		int measured = (checkpoint == null) ? 0 : (checkpoint.pendingSeeds != null) ? checkpoint.point : next; // Points before this are in the curve
+		
+		// Rest of the points
+		for (int x=next; x<=until; x++) {
+			if (job != null && job.lost)
+				return null; // Someone else holds it now, and continues from the checkpoint
+			double[] data = new double[dataLength];
+			
+			// Where a smaller budget that runs out during this point branches off
+			if (sweep != null && sweep.pending()) {
+				for (; measured<x; measured++)
+					curve.set(measured, score(tests[measured]), points[measured]);
+				sweep.before(new Checkpoint(x-1, dataLength, curve, pacman, rng, ghosts));
+			}
 			
-			// Rest of the points
-			for (int x=1; x<=LENGTH; x++) {
-				double[] data = new double[initialData.length];
+			for (int y=0; y<TRAIN; y++) {
+				int epLength = episode(pacman, rng, ghosts);
+				double[] episodeData = pacman.episodeData();
+				for (int d=0; d<data.length; d++)
+					data[d] += episodeData[d];
+//				data[data.length-1]+=epLength;
+			}
+			
+			points[x] = data;
+			tests[x] = test(pacman, rng, ghosts, scheduled(x, until));
+			
+			if (sweep != null)
+				sweep.after(pacman);
+			
+			// Checkpoint with the scores so far. The earlier tests ran while this point trained; this point's test
+			// keeps running while the next one trains, so if it is not done, its games are saved instead of its score
+			if (CHECKPOINT > 0 && x%CHECKPOINT == 0 && x < until && (job == null || !job.lost)) {
+				for (; measured<x; measured++)
+					curve.set(measured, score(tests[measured]), points[measured]);
 				
-				for (int y=0; y<TRAIN; y++) {
-					//int epLength = episode(pacman);
-					int epLength = episode(pacman);
-//					try {
-//						System.in.read();
-//					} catch (IOException e) {
-//						// TODO Auto-generated catch block
-//						e.printStackTrace();
-//					}
-					double[] episodeData = pacman.episodeData();
-					for (int d=0; d<data.length; d++)
-						data[d] += episodeData[d];
-//					data[data.length-1]+=epLength;
+				if (tests[x] != null && !tests[x].isDone())
+					new Checkpoint(x, dataLength, curve, pacman, rng, ghosts, tests[x].getSeeds(), points[x]).save(checkpointFile);
+				else {
+					curve.set(measured, score(tests[measured]), points[measured]);
+					measured++;
+					new Checkpoint(x, dataLength, curve, pacman, rng, ghosts).save(checkpointFile);
 				}
-				
-				
-				double score = evaluate(pacman, TEST);
-				curves[i].set(x, score, data);
 			}
-			
-			// Save new curve and policy
-			pacman.savePolicy(DIR+"/"+learnerCombined+"/policy"+i);
-//			pacman.saveStates(DIR+"/"+learnerCombined+"/visited"+i,4000);
+		}
+		
+		for (; measured<=until; measured++)
+			curve.set(measured, score(tests[measured]), points[measured]);
+		curve.interpolate(until+1);
+		
+		// Partial curve
+		if (until < LENGTH) {
+			if (next <= until)
+				new Checkpoint(until, dataLength, curve, pacman, rng, ghosts).save(checkpointFile);
+			return curve;
+		}
+		
+		// Save new curve and policy
+		if (job != null) {
+			if (job.lost)
+				return null;
+			pacman.savePolicy(path+"/policy"+i+job.suffix);
+			saveCurve(curve, path+"/curve"+i+job.suffix);
+			return curve; // Farm commits them and deletes the checkpoint
+		}
+		pacman.savePolicy(path+"/policy"+i);
+//		pacman.saveStates(path+"/visited"+i,4000);
 
-			curves[i].save(DIR+"/"+learnerCombined+"/curve"+i);
-			
-			// Average all curves
-			LearningCurve avgCurve = new LearningCurve(Arrays.copyOf(curves, i+1));
-			avgCurve.save(DIR+"/"+learnerCombined+"/avg_curve");
+		saveCurve(curve, path+"/curve"+i);
+		Checkpoint.delete(checkpointFile);
+		
+		if (sweep != null)
+			sweep.finish(curve, pacman);
+		return curve;
+	}
+	
+	/** Source of game seeds for one repeat. With COMMON_SEEDS it depends only on SEED and the repeat,
+	 *  so repeat i of every config plays the same games; otherwise it is seeded from the shared rng. */
+	static Random games(int repeat) {
+		if (COMMON_SEEDS)
+			return new Random(Seeds.split(Seeds.split(SEED, repeat), Seeds.GAMES));
+		return new Random(rng.nextLong());
+	}
+	
+	/** With COMMON_SEEDS, restart the ghosts and the learner's exploration from streams split off
+	 *  the game seed, so configs that behave differently still meet the same randomness next episode. */
+	private static void reseed(long seed, RLPacMan pacman, StandardGhosts ghosts) {
+		if (COMMON_SEEDS) {
+			ghosts.setSeed(Seeds.split(seed, Seeds.GHOSTS));
+			pacman.setSeed(Seeds.split(seed, Seeds.EXPLORATION));
 		}
+	}
+	
+	/** Start testing the learner at a curve point: in order on this thread,
+	 *  or on a frozen copy of its policy when EVAL_THREADS > 1.
+	 *  Points off the schedule draw their games too, so training sees the same ones, but return null. */
+	private static Evaluator.Pending test(RLPacMan pacman, Random rng, StandardGhosts ghosts, boolean scheduled) {
+		long[] seeds = new long[TEST];
+		for (int e=0; e<TEST; e++)
+			seeds[e] = rng.nextLong();
 		
-		System.out.println("Done.");
+		if (!scheduled)
+			return null;
+		if (EVAL_THREADS <= 1)
+			return new Evaluator.Pending(evaluate(pacman, seeds, ghosts));
+		
+		Evaluator.Pending pending = evaluator().submit(pacman, seeds);
+		if (!OVERLAP)
+			pending.score(); // Wait before training on
+		return pending;
+	}
+	
+	/** Score of a test, or NaN for a point left to interpolate. */
+	private static double score(Evaluator.Pending test) {
+		return (test == null) ? Double.NaN : test.score();
+	}
+	
+	/** Whether to test at a point. With LOG_POINTS only near powers of sqrt(2), where the curve still moves,
+	 *  and always at the first and last point of the curve or of a partial run. */
+	private static boolean scheduled(int x, int until) {
+		if (!LOG_POINTS || x == 0 || x == until || x == LENGTH)
+			return true;
+		
+		double k = Math.round(2*Math.log(x)/Math.log(2));
+		return x == Math.round(Math.pow(2, k/2));
+	}
+	
+	/** Whether a point has had enough test episodes: its standard error is below TEST_SE. */
+	static boolean enoughTests(int n, double sum, double sumSquares) {
+		if (TEST_SE <= 0 || n < Math.max(2, MIN_TEST))
+			return false;
+		
+		double variance = Math.max(0, (sumSquares - sum*sum/n) / (n-1));
+		return Math.sqrt(variance/n) < TEST_SE;
+	}
+	
+	/** Start the shared evaluator on first use. */
+	private static synchronized Evaluator evaluator() {
+		if (evaluator == null)
+			evaluator = new Evaluator(EVAL_THREADS);
+		return evaluator;
+	}
+	
+	/** Average the curves that exist so far and save the result. */
+	static void saveAverage(LearningCurve[] curves, String filename) {
+		List<LearningCurve> done = new ArrayList<LearningCurve>();
+		for (LearningCurve curve : curves)
+			if (curve != null)
+				done.add(curve);
+		
+		LearningCurve avgCurve = new LearningCurve(done.toArray(new LearningCurve[done.size()]));
+		saveCurve(avgCurve, filename);
+	}
+	
+	/** Save through a temporary file, so a killed run never leaves a partial curve for findStart.
+	 *  The temporary name is unique, so workers that commit the same curve do not mix their writes. */
+	static void saveCurve(LearningCurve curve, String filename) {
+		File target = new File(filename);
+		File tmp;
+		try {
+			tmp = File.createTempFile(target.getName()+".", ".tmp", target.getAbsoluteFile().getParentFile());
+		} catch (IOException e) {
+			System.out.println("ERROR: could not write to "+filename);
+			e.printStackTrace();
+			return;
+		}
+		curve.save(tmp.getPath());
+		
+		if (!tmp.renameTo(target)) {
+			target.delete();
+			if (!tmp.renameTo(target))
+				System.out.println("ERROR: could not rename "+tmp.getPath());
+		}
 	}
 
 	/** Train a learner for one more episode. */
 	public static int episode(RLPacMan pacman) {
+		return episode(pacman, rng, ghosts);
+	}
+	
+	/** Train a learner for one more episode, with a given source of games and ghosts. */
+	public static int episode(RLPacMan pacman, Random rng, StandardGhosts ghosts) {
 		int length = 0;
-		Game game = new Game(rng.nextLong());
-		pacman.startEpisode(game, false);
+		long seed = rng.nextLong();
+		Game game = new Game(seed);
+		Game view = new ReadOnlyGame(game); // What the controllers see, instead of copies
+		reseed(seed, pacman, ghosts);
+		pacman.startEpisode(view, false);
 
 		while(!game.gameOver() & length<15000) { //TODO: note length limitation
-			game.advanceGame(pacman.getMove(game.copy(), -1), ghosts.getMove(game.copy(), -1));
-			pacman.processStep(game);
-			length++;
+			int ticks = DecisionPoints.advance(game, view, pacman.getMove(view, -1), ghosts, 15000-length);
+			pacman.processStep(view, ticks);
+			length += ticks;
 		}
 		
 		return length;
@@ -414,25 +808,55 @@ public class Experiments {
 
 	/** Estimate the current performance of a learner. */
 	public static double evaluate(RLPacMan pacman, int width) {
+		return evaluate(pacman, width, rng, ghosts);
+	}
+	
+	/** Estimate the current performance of a learner, with a given source of games and ghosts. */
+	public static double evaluate(RLPacMan pacman, int width, Random rng, StandardGhosts ghosts) {
 		
 		double sumScore = 0;
 		
-		for(int i=0; i<width; i++) {
-			Game game = new Game(rng.nextLong());
-			pacman.startEpisode(game, true);
-			int length = 0;
-			while(!game.gameOver() & length<15000) {
-				game.advanceGame(pacman.getMove(game.copy(), -1), ghosts.getMove(game.copy(), -1));
-				pacman.processStep(game);
-				length++;
-//				System.out.println(length);
-			}
-			
-			sumScore += game.getScore();
-		}
+		for(int i=0; i<width; i++)
+			sumScore += play(pacman, rng.nextLong(), ghosts);
 
 		return sumScore/width;
 	}
+	
+	/** Estimate the performance of a learner on some games, stopping early once enoughTests. */
+	private static double evaluate(RLPacMan pacman, long[] seeds, StandardGhosts ghosts) {
+		
+		double sumScore = 0;
+		double sumSquares = 0;
+		int n = 0;
+		
+		while (n < seeds.length) {
+			int score = play(pacman, seeds[n++], ghosts);
+			sumScore += score;
+			sumSquares += (double)score*score;
+			
+			if (enoughTests(n, sumScore, sumSquares))
+				break;
+		}
+		
+		return sumScore/n;
+	}
+	
+	/** Play one test episode. */
+	private static int play(RLPacMan pacman, long seed, StandardGhosts ghosts) {
+		Game game = new Game(seed);
+		Game view = new ReadOnlyGame(game);
+		reseed(seed, pacman, ghosts);
+		pacman.startEpisode(view, true);
+		int length = 0;
+		while(!game.gameOver() & length<15000) {
+			int ticks = DecisionPoints.advance(game, view, pacman.getMove(view, -1), ghosts, 15000-length);
+			pacman.processStep(view, ticks);
+			length += ticks;
+//			System.out.println(length);
+		}
+		
+		return game.getScore();
+	}
 
 	/** Observe a learner play a game. */
 	public static void watch(RLPacMan pacman) {
@@ -556,7 +980,7 @@ public class Experiments {
 			
 		BasicRLPacMan student = (BasicRLPacMan)create("independent", "teacher", "always",false);
 		BasicRLPacMan teacher = (BasicRLPacMan)create("teacher", "teacher", "always",false);
-		PredictImportantMistakes strategy = new PredictImportantMistakes(0);
+		PredictImportantMistakes strategy = new PredictImportantMistakes(0, BUDGET);
 		
 		for (int i=0; i<300; i++) {
 			Game game = new Game(rng.nextLong());
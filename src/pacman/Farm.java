@@ -0,0 +1,297 @@
+package pacman;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.utils.DataFile;
+import pacman.utils.LearningCurve;
+import pacman.utils.Seeds;
+
+/**
+ * Spreads the repeats of experiment files over worker JVMs, on one machine or several
+ * that share a filesystem. Each (directory, config line, repeat) is one job file in a queue
+ * directory, and moves between todo/, leased/ and done/ by atomic renames.
+ *
+ * A worker holds a job by a lease whose modification time it renews every FARM_HEARTBEAT.
+ * A lease not renewed for FARM_LEASE goes back to todo/, and the next worker resumes it from
+ * its checkpoint. A worker whose lease is gone stops training without saving anything more.
+ * Each job draws its games and ghosts from seeds split off its repeat, so whoever runs it gets
+ * the same curve.
+ *
+ * A finished job writes its curve and policy under names private to its lease, then commits by
+ * one rename, of its lease to done/: only the worker that still holds the lease can make it.
+ * That worker alone moves the curve and policy into place and recomputes avg_curve from the
+ * curve files. If it dies before they are in place, enqueue() finds no curve and queues the job again.
+ */
+public class Farm {
+
+	private final File todo, leased, done;
+	private final String name; // Of this process
+
+	public Farm(String queue) {
+		todo = new File(queue, "todo");
+		leased = new File(queue, "leased");
+		done = new File(queue, "done");
+		todo.mkdirs();
+		leased.mkdirs();
+		done.mkdirs();
+		name = ManagementFactory.getRuntimeMXBean().getName().replace('@', '-');
+	}
+
+	/** Queue every missing curve of an experiment file. A fifth column overrides DIR for its line. */
+	public void enqueue(String filename) {
+		String dir = Experiments.DIR;
+		int queued = 0;
+
+		DataFile file = new DataFile(filename);
+		while(file.hasNextLine()) {
+			String[] params = file.nextLine().split("\t");
+			Experiments.DIR = (params.length > 4) ? params[4] : dir;
+
+			String path = Experiments.DIR+"/"+params[0]+"_"+params[2]+"_"+params[3];
+			new File(path).mkdirs();
+			Experiments.writeConfig(path+"/config.txt", params[1], Boolean.parseBoolean(params[3]));
+
+			for (int i=0; i<Experiments.REPEATS; i++) {
+				String job = Experiments.DIR+"\t"+params[0]+"\t"+params[1]+"\t"+params[2]+"\t"+params[3]+"\t"+i;
+				String jobName = (path+"_"+i).replaceAll("[^A-Za-z0-9._-]", "_");
+
+				if (new File(path+"/curve"+i).exists() || new File(todo, jobName).exists() || isLeased(jobName))
+					continue;
+
+				new File(done, jobName).delete();
+				write(new File(todo, jobName), job);
+				queued++;
+			}
+		}
+		file.close();
+
+		Experiments.DIR = dir;
+		System.out.println("Queued "+queued+" jobs");
+	}
+
+	/** Queue the jobs, then hand expired leases back out until every job is done. */
+	public void coordinate(String filename) {
+		enqueue(filename);
+
+		while (true) {
+			reap();
+			int waiting = todo.list().length;
+			int running = leased.list().length;
+			System.out.println(waiting+" jobs waiting, "+running+" running, "+done.list().length+" done");
+
+			if (waiting == 0 && running == 0)
+				break;
+			sleep(Experiments.FARM_HEARTBEAT);
+		}
+
+		System.out.println("Done.");
+	}
+
+	/** Take jobs until none are left to take or to wait for. */
+	public void work() {
+		while (true) {
+			reap();
+			File lease = claim();
+
+			if (lease != null) {
+				try {
+					run(lease);
+				} catch (RuntimeException e) {
+					e.printStackTrace(); // The lease expires and the job is tried again
+				}
+			}
+			else if (leased.list().length == 0)
+				break;
+			else
+				sleep(Experiments.FARM_HEARTBEAT);
+		}
+
+		System.out.println("Done.");
+	}
+
+	/** Move the first waiting job to a lease of this worker, or return null if there is none. */
+	private File claim() {
+		String[] jobs = todo.list();
+		Arrays.sort(jobs);
+
+		for (String jobName : jobs) {
+			File job = new File(todo, jobName);
+			File lease = new File(leased, jobName+"@"+name+"-"+Thread.currentThread().getId());
+
+			job.setLastModified(System.currentTimeMillis()); // So the lease starts fresh
+			if (job.renameTo(lease))
+				return lease;
+		}
+
+		return null;
+	}
+
+	/** A job as trainCurve sees it: where its output goes until committed, and whether it still holds its lease. */
+	static class Job {
+		final String suffix;
+		volatile boolean lost;
+
+		Job(String suffix) {
+			this.suffix = suffix;
+		}
+	}
+
+	/** Train and commit one job while renewing its lease. */
+	private void run(final File lease) {
+		String[] params = read(lease).split("\t");
+		String path = params[0]+"/"+params[1]+"_"+params[3]+"_"+params[4];
+		int repeat = Integer.parseInt(params[5]);
+
+		String jobName = lease.getName().substring(0, lease.getName().indexOf('@'));
+		final Job job = new Job("."+lease.getName().substring(jobName.length()+1));
+
+		final Timer heartbeat = new Timer(true);
+		heartbeat.schedule(new TimerTask() {
+			public void run() {
+				if (!lease.setLastModified(System.currentTimeMillis())) {
+					System.out.println("ERROR: lost the lease "+lease.getName()+"; stopping");
+					job.lost = true;
+					heartbeat.cancel();
+				}
+			}
+		}, Experiments.FARM_HEARTBEAT, Experiments.FARM_HEARTBEAT);
+
+		File curve = new File(path+"/curve"+repeat);
+		File newCurve = new File(curve.getPath()+job.suffix);
+		File newPolicy = new File(path+"/policy"+repeat+job.suffix);
+
+		try {
+			if (!curve.exists()) {
+				long seed = Seeds.split(Experiments.COMMON_SEEDS ? Experiments.SEED : Seeds.split(Experiments.SEED, path.hashCode()), repeat);
+				Random games = new Random(Seeds.split(seed, Seeds.GAMES));
+				StandardGhosts ghosts = new StandardGhosts(Seeds.split(seed, Seeds.GHOSTS));
+
+				if (Experiments.trainCurve(path, params[1], params[2], params[3], Boolean.parseBoolean(params[4]),
+						Experiments.BUDGET, repeat, games, ghosts, Experiments.LENGTH, null, job) == null) {
+					discard(newCurve, newPolicy);
+					return;
+				}
+			}
+		} finally {
+			heartbeat.cancel();
+		}
+
+		// The commit: whoever still holds the lease, and no one else, places the results
+		if (job.lost || !lease.renameTo(new File(done, jobName))) {
+			System.out.println("ERROR: lost the lease "+lease.getName()+"; discarding its results");
+			discard(newCurve, newPolicy);
+			return;
+		}
+
+		if (newCurve.exists()) {
+			place(newPolicy, new File(path+"/policy"+repeat));
+			place(newCurve, curve);
+			Checkpoint.delete(path+"/checkpoint"+repeat);
+		}
+		commitAverage(path);
+	}
+
+	/** Move a result of this worker over the committed one. */
+	private static void place(File result, File target) {
+		target.delete();
+		if (!result.renameTo(target))
+			System.out.println("ERROR: could not rename "+result.getPath());
+	}
+
+	/** Drop the results of a job this worker no longer holds. */
+	private static void discard(File... results) {
+		for (File result : results)
+			result.delete();
+	}
+
+	/** Recompute a config's average from its curve files, one worker at a time. */
+	private void commitAverage(String path) {
+		File lock = new File(path+"/avg_curve.lock");
+		while (!tryLock(lock))
+			sleep(100);
+
+		try {
+			LearningCurve[] curves = new LearningCurve[Experiments.REPEATS];
+			for (int i=0; i<Experiments.REPEATS; i++) {
+				String filename = path+"/curve"+i;
+				if (new File(filename).exists())
+					curves[i] = new LearningCurve(Experiments.LENGTH+1, Experiments.TRAIN, filename);
+			}
+			Experiments.saveAverage(curves, path+"/avg_curve");
+		} finally {
+			lock.delete();
+		}
+	}
+
+	/** Take a lock file, breaking it if its holder died long ago. */
+	private boolean tryLock(File lock) {
+		try {
+			if (lock.createNewFile())
+				return true;
+		} catch (IOException e) {
+			System.out.println("ERROR: could not create "+lock.getPath());
+		}
+
+		if (lock.exists() && System.currentTimeMillis() - lock.lastModified() > Experiments.FARM_LEASE)
+			lock.delete();
+		return false;
+	}
+
+	/** Send leases that stopped beating back to todo/. */
+	private void reap() {
+		long now = System.currentTimeMillis();
+
+		for (File lease : leased.listFiles()) {
+			long modified = lease.lastModified();
+			if (modified == 0 || now - modified < Experiments.FARM_LEASE)
+				continue;
+
+			String jobName = lease.getName().substring(0, lease.getName().indexOf('@'));
+			if (lease.renameTo(new File(todo, jobName)))
+				System.out.println("Requeued "+jobName+" from "+lease.getName().substring(jobName.length()+1));
+		}
+	}
+
+	/** Whether some worker holds a job. */
+	private boolean isLeased(String jobName) {
+		for (String lease : leased.list())
+			if (lease.startsWith(jobName+"@"))
+				return true;
+		return false;
+	}
+
+	/** Write a job file whole, so no worker sees it half written. */
+	private static void write(File job, String line) {
+		File tmp = new File(job.getParentFile().getParentFile(), job.getName()+".tmp");
+		DataFile file = new DataFile(tmp.getPath());
+		file.clear();
+		file.append(line);
+		file.close();
+
+		if (!tmp.renameTo(job))
+			System.out.println("ERROR: could not rename "+tmp.getPath());
+	}
+
+	/** Read a job file. */
+	private static String read(File job) {
+		DataFile file = new DataFile(job.getPath());
+		String line = file.nextLine();
+		file.close();
+		return line;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package pacman;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.entries.pacman.FeatureSet;
+import pacman.entries.pacman.QFunction;
+import pacman.game.Constants;
+import pacman.game.Constants.MOVE;
+import pacman.game.FastGame;
+import pacman.game.FastGameView;
+import pacman.game.Game;
+import pacman.utils.Seeds;
+
+/**
+ * Holds a batch of independent FastGames against the standard ghosts, and advances them all in
+ * lockstep, one tick per call. Each phase of a tick runs across the whole batch before the next:
+ * first every ghost decision, then every game advance. The ghosts are StandardGhosts deciding on
+ * the flat tables of FastGame, as move ordinals in one int[] per game, so a tick allocates nothing
+ * and does no EnumMap lookups. Features for every legal move of every game can be extracted the
+ * same way, through a Game view of each FastGame, so a policy can choose all the moves at once.
+ *
+ * Each game gets its own ghosts, seeded from its game as in Evaluator, so with global reversals
+ * off a game plays out exactly as a Game against StandardGhosts would. A game is done once it is
+ * over or has run for the length limit; it then sits still until it is reset.
+ */
+public class GameBatch {
+
+	private static final MOVE[] MOVES = MOVE.values();
+	private static final int NEUTRAL = MOVE.NEUTRAL.ordinal();
+	private static final MOVE[][] POSSIBLE = new MOVE[16][]; // Legal moves for each set of open directions
+
+	static {
+		for (int open=0; open<16; open++) {
+			MOVE[] moves = new MOVE[Integer.bitCount(open)];
+			for (int m=0, i=0; m<4; m++)
+				if ((open & (1<<m)) != 0)
+					moves[i++] = MOVES[m];
+			POSSIBLE[open] = moves;
+		}
+	}
+
+	private final int maxLength; // Ticks per game, at most
+	private final FastGame[] games;
+	private final Game[] views; // Handed out, so callers cannot advance a game out of step
+	private final StandardGhosts[] ghosts;
+	private final int[][] ghostMoves; // This tick's decisions, by ghost ordinal
+	private final MOVE[][] actions; // Legal Ms Pac-Man moves at the last getActions()
+	private final int[] lengths;
+	private final boolean[] done;
+	private boolean globalReversals = true;
+	private int running; // Games not done
+
+	/** Start one game per seed, with the same length limit as Evaluator. */
+	public GameBatch(long[] seeds) {
+		this(seeds, 15000);
+	}
+
+	/** Start one game per seed. */
+	public GameBatch(long[] seeds, int maxLength) {
+		this.maxLength = maxLength;
+		int n = seeds.length;
+		games = new FastGame[n];
+		views = new Game[n];
+		ghosts = new StandardGhosts[n];
+		ghostMoves = new int[n][Constants.NUM_GHOSTS];
+		actions = new MOVE[n][];
+		lengths = new int[n];
+		done = new boolean[n];
+
+		for (int i=0; i<n; i++) {
+			ghosts[i] = new StandardGhosts(0);
+			done[i] = true; // Until its first reset
+			reset(i, seeds[i]);
+		}
+	}
+
+	/** Replace one game with a new one from a seed. */
+	public void reset(int i, long seed) {
+		games[i] = new FastGame(seed);
+		games[i].setGlobalReversals(globalReversals);
+		views[i] = new FastGameView(games[i]);
+		ghosts[i].setSeed(Seeds.split(seed, Seeds.GHOSTS));
+		actions[i] = null;
+		lengths[i] = 0;
+
+		if (done[i])
+			running++;
+		done[i] = false;
+	}
+
+	/** Enable or disable random global reversals in every game, now and after resets. */
+	public void setGlobalReversals(boolean value) {
+		globalReversals = value;
+		for (FastGame game : games)
+			game.setGlobalReversals(value);
+	}
+
+	/** Number of games in the batch. */
+	public int size() {
+		return games.length;
+	}
+
+	/** Number of games not yet done. */
+	public int running() {
+		return running;
+	}
+
+	/** Whether a game is over or out of time. */
+	public boolean isDone(int i) {
+		return done[i];
+	}
+
+	/** A read-only view of one game. */
+	public Game getGame(int i) {
+		return views[i];
+	}
+
+	/** Ticks played in one game. */
+	public int getLength(int i) {
+		return lengths[i];
+	}
+
+	/** Legal Ms Pac-Man moves in each running game, in the order of Game.getPossibleMoves(), or null for a done one.
+	 *  The arrays are shared, so they must not be changed. */
+	public MOVE[][] getActions() {
+		for (int i=0; i<games.length; i++) {
+			if (done[i]) {
+				actions[i] = null;
+				continue;
+			}
+
+			int node = games[i].getPacmanCurrentNodeIndex();
+			int open = 0;
+			for (int m=0; m<4; m++)
+				if (games[i].getNeighbour(node, m) >= 0)
+					open |= 1<<m;
+			actions[i] = POSSIBLE[open];
+		}
+		return actions;
+	}
+
+	/** Features for each legal move in each running game, in the order of getActions(). */
+	public FeatureSet[][] extract(FeatureSet prototype) {
+		MOVE[][] actions = getActions();
+		FeatureSet[][] features = new FeatureSet[games.length][];
+
+		for (int i=0; i<games.length; i++) {
+			if (actions[i] == null)
+				continue;
+
+			features[i] = new FeatureSet[actions[i].length];
+			for (int a=0; a<actions[i].length; a++)
+				features[i][a] = prototype.extract(views[i], actions[i][a]);
+		}
+
+		return features;
+	}
+
+	/** Choose the move with the highest Q-value in every running game, the first on a tie, as GreedyPacMan does; done games get null. */
+	public MOVE[] getGreedyMoves(FeatureSet prototype, QFunction Qfunction, MOVE[] moves) {
+		FeatureSet[][] features = extract(prototype);
+
+		for (int i=0; i<games.length; i++) {
+			if (actions[i] == null) {
+				moves[i] = null;
+				continue;
+			}
+
+			int bestActionIndex = 0;
+			double bestQ = -Double.MAX_VALUE;
+			for (int a=0; a<actions[i].length; a++) {
+				double value = Qfunction.evaluate(features[i][a]);
+				if (a == 0 || value > bestQ) {
+					bestQ = value;
+					bestActionIndex = a;
+				}
+			}
+
+			moves[i] = actions[i][bestActionIndex];
+		}
+
+		return moves;
+	}
+
+	/** Advance every running game by one tick, with one Ms Pac-Man move per game, and return how many are still running. */
+	public int step(MOVE[] pacmanMoves) {
+		if (pacmanMoves.length != games.length)
+			throw new IllegalArgumentException("need "+games.length+" moves, got "+pacmanMoves.length);
+
+		// All ghost decisions, on the states before the move
+		for (int i=0; i<games.length; i++)
+			if (!done[i])
+				ghosts[i].getMoves(games[i], ghostMoves[i]);
+
+		// Then all advances
+		for (int i=0; i<games.length; i++) {
+			if (done[i])
+				continue;
+
+			games[i].advanceGame(pacmanMoves[i] == null ? NEUTRAL : pacmanMoves[i].ordinal(), ghostMoves[i]);
+			lengths[i]++;
+
+			if (games[i].gameOver() || lengths[i] >= maxLength) {
+				done[i] = true;
+				running--;
+			}
+		}
+
+		return running;
+	}
+}
@@ -0,0 +1,191 @@
+package pacman;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.utils.LearningCurve;
+import pacman.utils.Stats;
+
+/**
+ * Races the variants of each threshold sweep in an experiment file (correct50, correct100, ...)
+ * by successive halving. All variants first train RACE_REPEATS curves to a fraction of LENGTH.
+ * Those whose running area is significantly worse than the leader's are dropped, and so are
+ * the ones past RACE_KEEP. The survivors share the freed repeats on the next rung, which is twice
+ * as long, and continue their partial curves from the checkpoints.
+ *
+ * Works best with COMMON_SEEDS, so variants are compared on the same games.
+ */
+public class Race {
+
+	private static final double ALPHA = 0.05; // Of wrongly dropping a variant over a whole race
+
+	private final Map<String,List<Runner>> families = new LinkedHashMap<String,List<Runner>>();
+
+	/** Group config lines into families that differ only in their numbers. */
+	public void load(String filename) {
+		for (Scheduler.Config config : Scheduler.read(filename)) {
+			String family = config.learner.replaceAll("[0-9]+$", "")+"_"+config.initiator+"_"
+					+config.attentionMode.replaceAll("[0-9]+$", "")+"_"+config.teacherRelease;
+
+			if (!families.containsKey(family))
+				families.put(family, new ArrayList<Runner>());
+			families.get(family).add(new Runner(config));
+		}
+	}
+
+	/** Race every family in turn. */
+	public void run() {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Experiments.THREADS));
+
+		for (Map.Entry<String,List<Runner>> family : families.entrySet()) {
+			System.out.println("Racing "+family.getValue().size()+" variants of "+family.getKey());
+			List<Runner> survivors = race(family.getValue(), pool);
+
+			for (Runner runner : survivors)
+				System.out.println("Finished "+runner.config.learnerCombined);
+		}
+
+		pool.shutdown();
+		System.out.println("Done.");
+	}
+
+	/** Train the variants rung by rung, and return the ones that reach the full length. */
+	private List<Runner> race(List<Runner> variants, ExecutorService pool) {
+		int budget = variants.size() * Experiments.RACE_REPEATS; // Repeats per rung
+		int repeats = 0;
+		int comparisons = Math.max(1, (Experiments.RACE_RUNGS-1) * (variants.size()-1)); // Against the leader, over all cuts
+		List<Runner> alive = new ArrayList<Runner>(variants);
+
+		for (Runner runner : alive)
+			runner.config.prepare();
+
+		for (int rung=Experiments.RACE_RUNGS-1; rung>=0; rung--) {
+			int until = Experiments.LENGTH >> rung;
+			repeats = Math.min(Experiments.REPEATS, Math.max(repeats, budget/alive.size()));
+
+			train(alive, repeats, until, pool);
+			if (rung > 0)
+				alive = cut(alive, repeats, until, comparisons);
+		}
+
+		return alive;
+	}
+
+	/** Bring the first repeats of each variant up to point until. */
+	private void train(List<Runner> alive, int repeats, final int until, ExecutorService pool) {
+		List<Future<?>> results = new ArrayList<Future<?>>();
+
+		for (int i=0; i<repeats; i++) {
+			for (final Runner runner : alive) {
+				final Scheduler.Config config = runner.config;
+				if (config.curves[i] != null) {
+					runner.curves[i] = config.curves[i];
+					continue;
+				}
+
+				final int repeat = i;
+				final Random games = Experiments.games(i);
+				results.add(pool.submit(new Runnable() {
+					public void run() {
+						LearningCurve curve = Experiments.trainCurve(config.learner, config.initiator, config.attentionMode,
+								config.teacherRelease, repeat, games, new StandardGhosts(), until);
+
+						runner.curves[repeat] = curve;
+						if (until == Experiments.LENGTH)
+							config.finish(repeat, curve);
+					}
+				}));
+			}
+		}
+
+		for (Future<?> result : results) {
+			try {
+				result.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+	}
+
+	/** Drop the variants that are significantly worse than the leader, at ALPHA split over all the comparisons of the race
+	 *  (Bonferroni), then keep at most RACE_KEEP of the rest. */
+	private List<Runner> cut(List<Runner> alive, int repeats, int until, int comparisons) {
+		for (Runner runner : alive)
+			runner.measure(repeats, until+1);
+
+		List<Runner> ranked = new ArrayList<Runner>(alive);
+		Collections.sort(ranked, new Comparator<Runner>() {
+			public int compare(Runner a, Runner b) {
+				return Double.compare(b.mean, a.mean);
+			}
+		});
+
+		Runner leader = ranked.get(0);
+		int keep = (int)Math.ceil(alive.size() * Experiments.RACE_KEEP);
+		DecimalFormat f = new DecimalFormat("#.##");
+		List<Runner> survivors = new ArrayList<Runner>();
+
+		for (Runner runner : ranked) {
+			String area = "area "+f.format(runner.mean)+" against "+f.format(leader.mean);
+
+			if (runner != leader && runner.areas.length > 1 && leader.areas.length > 1) {
+				double t = Stats.t(runner.areas, leader.areas);
+				if (t < -Stats.tCritical(Stats.dof(runner.areas, leader.areas), ALPHA/comparisons)) {
+					System.out.println("Dropping "+runner.config.learnerCombined+" at point "+until+": "+area+", t = "+f.format(t));
+					continue;
+				}
+			}
+
+			if (survivors.size() >= keep) {
+				System.out.println("Dropping "+runner.config.learnerCombined+" at point "+until+": "+area+", below the top "+keep);
+				continue;
+			}
+
+			survivors.add(runner);
+		}
+
+		return survivors;
+	}
+
+	/**
+	 * One variant in the race and its curves so far, partial or full.
+	 */
+	private static class Runner {
+
+		final Scheduler.Config config;
+		final LearningCurve[] curves = new LearningCurve[Experiments.REPEATS];
+		double[] areas; // Under the running curves
+		double mean;
+
+		Runner(Scheduler.Config config) {
+			this.config = config;
+		}
+
+		/** Compute the areas under the first points of the first repeats that trained. */
+		void measure(int repeats, int points) {
+			List<Double> done = new ArrayList<Double>();
+			for (int i=0; i<repeats; i++)
+				if (curves[i] != null)
+					done.add(curves[i].area(points));
+
+			areas = new double[done.size()];
+			for (int i=0; i<areas.length; i++)
+				areas[i] = done.get(i);
+			mean = Stats.average(areas);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package pacman;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.utils.DataFile;
+import pacman.utils.LearningCurve;
+
+/**
+ * Runs every (config line, repeat) pair of an experiment file as one job on a shared queue,
+ * so workers move on to the next config line instead of waiting for a slow one.
+ */
+public class Scheduler {
+
+	private final int slots; // Jobs that may run at once
+	private final List<Config> configs = new ArrayList<Config>();
+
+	/** Fit the worker count to both the thread and the memory limit. */
+	public Scheduler(int threads, long memory, long jobMemory) {
+		slots = (int)Math.max(1, Math.min(threads, memory/jobMemory));
+	}
+
+	/** Read tab-separated config lines: strategy, initiator, attention mode, teacher release. */
+	public void load(String filename) {
+		configs.addAll(read(filename));
+	}
+	
+	/** Parse the config lines of an experiment file. */
+	static List<Config> read(String filename) {
+		List<Config> configs = new ArrayList<Config>();
+		DataFile file = new DataFile(filename);
+		while(file.hasNextLine()) {
+			String[] params = file.nextLine().split("\t");
+			configs.add(new Config(params[0], params[1], params[2], Boolean.parseBoolean(params[3])));
+		}
+		file.close();
+		return configs;
+	}
+
+	/** Train all missing curves, and wait until they are done. */
+	public void run() {
+		System.out.println("Scheduling "+configs.size()+" configs on "+slots+" workers");
+		ExecutorService pool = Executors.newFixedThreadPool(slots);
+		List<Future<?>> results = new ArrayList<Future<?>>();
+
+		for (Config config : configs)
+			config.prepare();
+
+		// Repeat-major order, so every config gets an early average
+		for (int i=0; i<Experiments.REPEATS; i++) {
+			for (final Config config : configs) {
+				if (config.curves[i] != null)
+					continue;
+
+				final int repeat = i;
+				final Random games = Experiments.games(i);
+				results.add(pool.submit(new Runnable() {
+					public void run() {
+						if (config.enough())
+							return;
+						config.finish(repeat, Experiments.trainCurve(config.learner, config.initiator, config.attentionMode,
+								config.teacherRelease, repeat, games, new StandardGhosts()));
+					}
+				}));
+			}
+		}
+
+		pool.shutdown();
+		for (Future<?> result : results) {
+			try {
+				result.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+
+		System.out.println("Done.");
+	}
+
+	/**
+	 * One line of the experiment file and the curves it has so far.
+	 */
+	static class Config {
+
+		final String learner, initiator, attentionMode;
+		final boolean teacherRelease;
+		final String learnerCombined; // Name of the config's directory
+		final String path; // Directory for this config's curves
+		final LearningCurve[] curves = new LearningCurve[Experiments.REPEATS];
+		final StoppingRule rule;
+
+		Config(String learner, String initiator, String attentionMode, boolean teacherRelease) {
+			this.learner = learner;
+			this.initiator = initiator;
+			this.attentionMode = attentionMode;
+			this.teacherRelease = teacherRelease;
+
+			learnerCombined = learner+"_"+attentionMode+"_"+teacherRelease;
+			path = Experiments.DIR+"/"+learnerCombined;
+			rule = new StoppingRule(learnerCombined);
+		}
+
+		/** Make the directory and load any curves already finished. */
+		void prepare() {
+			new File(path).mkdirs();
+			Experiments.writeConfig(path+"/config.txt", initiator, teacherRelease);
+
+			int start = Experiments.findStart(learnerCombined);
+			for (int i=0; i<Experiments.REPEATS; i++) {
+				String filename = path+"/curve"+i;
+				if (i < start || new File(filename).exists())
+					curves[i] = new LearningCurve(Experiments.LENGTH+1, Experiments.TRAIN, filename);
+			}
+		}
+
+		/** Whether the curves so far are enough to skip the remaining repeats. */
+		synchronized boolean enough() {
+			return rule.enough(curves);
+		}
+		
+		/** Record a finished curve and refresh the average. */
+		synchronized void finish(int i, LearningCurve curve) {
+			curves[i] = curve;
+			Experiments.saveAverage(curves, path+"/avg_curve");
+		}
+	}
+}
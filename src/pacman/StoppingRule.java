@@ -0,0 +1,89 @@
+package pacman;
+
+import java.io.File;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import pacman.utils.LearningCurve;
+import pacman.utils.Stats;
+
+/**
+ * Decides when a config has enough repeats: once the 95% confidence interval on the area
+ * under its curves is narrower than Experiments.CI_WIDTH, or a Welch test separates it
+ * from the Experiments.BASELINE config. REPEATS stays the most a config will run.
+ *
+ * The Welch test is looked at after every repeat from MIN_REPEATS to REPEATS, so each look is
+ * made at 5% divided by the number of possible looks (Bonferroni). That keeps the chance of a
+ * false stop over the whole run under 5%, at the cost of some power; the looks are few enough
+ * that a sharper alpha-spending bound would gain little.
+ */
+public class StoppingRule {
+
+	private static final double ALPHA = 0.05; // Of a false stop over all the looks
+
+	private final String learnerCombined; // Config being trained
+	private boolean stopped; // Once enough
+
+	public StoppingRule(String learnerCombined) {
+		this.learnerCombined = learnerCombined;
+	}
+
+	/** Check the curves finished so far (nulls are skipped), and report the first time they are enough. */
+	public synchronized boolean enough(LearningCurve[] curves) {
+		if (stopped)
+			return true;
+
+		double[] areas = areas(curves);
+		int first = Math.max(2, Experiments.MIN_REPEATS);
+		if (areas.length < first)
+			return false;
+
+		DecimalFormat f = new DecimalFormat("#.##");
+		double mean = Stats.average(areas);
+		double halfWidth = Stats.halfWidth95(areas);
+
+		if (halfWidth*2 < Experiments.CI_WIDTH) {
+			System.out.println("Stopping "+learnerCombined+" after "+areas.length+" repeats: area "+f.format(mean)+" +- "+f.format(halfWidth));
+			stopped = true;
+		}
+		else if (Experiments.BASELINE != null && !Experiments.BASELINE.equals(learnerCombined)) {
+			double[] baseline = areas(baselineCurves());
+			if (baseline.length >= 2) {
+				double t = Stats.t(areas, baseline);
+				double dof = Stats.dof(areas, baseline);
+				int looks = Math.max(1, Experiments.REPEATS - first + 1);
+				if (Math.abs(t) > Stats.tCritical(dof, ALPHA/looks)) {
+					System.out.println("Stopping "+learnerCombined+" after "+areas.length+" repeats: t = "+f.format(t)+" against "+Experiments.BASELINE);
+					stopped = true;
+				}
+			}
+		}
+
+		return stopped;
+	}
+
+	/** Areas under the curves that exist. */
+	private static double[] areas(LearningCurve[] curves) {
+		List<Double> done = new ArrayList<Double>();
+		for (LearningCurve curve : curves)
+			if (curve != null)
+				done.add(curve.area());
+
+		double[] areas = new double[done.size()];
+		for (int i=0; i<areas.length; i++)
+			areas[i] = done.get(i);
+		return areas;
+	}
+
+	/** Whatever curves the baseline config has saved so far. */
+	private static LearningCurve[] baselineCurves() {
+		LearningCurve[] curves = new LearningCurve[Experiments.REPEATS];
+		for (int i=0; i<Experiments.REPEATS; i++) {
+			String filename = Experiments.DIR+"/"+Experiments.BASELINE+"/curve"+i;
+			if (new File(filename).exists())
+				curves[i] = new LearningCurve(Experiments.LENGTH+1, Experiments.TRAIN, filename);
+		}
+		return curves;
+	}
+}
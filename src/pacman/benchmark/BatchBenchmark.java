@@ -0,0 +1,151 @@
+package pacman.benchmark;
+
+import java.util.Random;
+
+import pacman.GameBatch;
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.entries.pacman.CustomFeatureSet;
+import pacman.entries.pacman.GreedyPacMan;
+import pacman.entries.pacman.QPacMan;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.ReadOnlyGame;
+import pacman.utils.Seeds;
+
+/**
+ * Plays the same episodes one Game at a time against StandardGhosts, as Evaluator does, and in
+ * lockstep through a GameBatch, checks that every game scores the same both ways, and compares
+ * their speed in ticks per second. Ms Pac-Man either takes a random legal move each tick, from a
+ * random number generator per game, to time the engines alone, or plays a greedy policy with
+ * random weights, which extracts features through the batch's Game views. Global reversals are
+ * off, since both engines draw them from Math.random().
+ *
+ * Usage: BatchBenchmark [batch size] [seconds per run]
+ */
+public class BatchBenchmark {
+
+	private static long ticks; // Played since the last run started
+	private static GreedyPacMan policy; // Or null for a random walk
+	private static QPacMan learner; // Whose frozen weights the policy plays
+
+	public static void main(String[] args) {
+		int size = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+		double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 2;
+
+		Random rng = new Random(0);
+		long[] seeds = new long[size];
+		for (int i=0; i<size; i++)
+			seeds[i] = rng.nextLong();
+
+		learner = new QPacMan(new CustomFeatureSet());
+		double[] weights = learner.getQfunc().getWeights();
+		for (int i=0; i<weights.length; i++)
+			weights[i] = rng.nextGaussian();
+
+		for (String name : new String[] {"walk", "greedy"}) {
+			policy = name.equals("greedy") ? new GreedyPacMan(learner) : null;
+
+			int[] expected = sequential(seeds);
+			int[] actual = batched(seeds);
+			for (int i=0; i<size; i++) {
+				if (expected[i] != actual[i]) {
+					System.out.println("ERROR: "+name+" game "+i+" (seed "+seeds[i]+") scores "+expected[i]+" alone but "+actual[i]+" in a batch");
+					System.exit(1);
+				}
+			}
+			System.out.println("Batch agrees on "+size+" "+name+" games");
+
+			// Warm up both, then measure
+			for (int round=0; round<2; round++) {
+				boolean report = (round == 1);
+				run(name+" sequential", seeds, seconds, false, report);
+				run(name+" batched", seeds, seconds, true, report);
+			}
+		}
+	}
+
+	/** Ms Pac-Man's moves in one game. */
+	private static Random walk(long seed) {
+		return new Random(Seeds.split(seed, Seeds.EXPLORATION));
+	}
+
+	/** Play each game to the end in turn, the way Evaluator does. */
+	private static int[] sequential(long[] seeds) {
+		int[] scores = new int[seeds.length];
+
+		for (int i=0; i<seeds.length; i++) {
+			Game game = new Game(seeds[i]);
+			game.setGlobalReversals(false);
+			Game view = new ReadOnlyGame(game);
+			StandardGhosts ghosts = new StandardGhosts(Seeds.split(seeds[i], Seeds.GHOSTS));
+			Random walk = walk(seeds[i]);
+
+			int length = 0;
+			while(!game.gameOver() & length<15000) {
+				MOVE move;
+				if (policy != null)
+					move = policy.getMove(view, -1);
+				else {
+					MOVE[] actions = game.getPossibleMoves(game.getPacmanCurrentNodeIndex());
+					move = actions[walk.nextInt(actions.length)];
+				}
+				game.advanceGame(move, ghosts.getMove(view, -1));
+				length++;
+			}
+
+			scores[i] = game.getScore();
+			ticks += length;
+		}
+
+		return scores;
+	}
+
+	/** Play all the games at once. */
+	private static int[] batched(long[] seeds) {
+		GameBatch batch = new GameBatch(seeds);
+		batch.setGlobalReversals(false);
+
+		Random[] walks = new Random[seeds.length];
+		for (int i=0; i<seeds.length; i++)
+			walks[i] = walk(seeds[i]);
+
+		MOVE[] moves = new MOVE[seeds.length];
+		while (batch.running() > 0) {
+			if (policy != null)
+				batch.getGreedyMoves(learner.getPrototype(), learner.getQfunc(), moves);
+			else {
+				MOVE[][] actions = batch.getActions();
+				for (int i=0; i<seeds.length; i++)
+					moves[i] = (actions[i] == null) ? null : actions[i][walks[i].nextInt(actions[i].length)];
+			}
+			batch.step(moves);
+		}
+
+		int[] scores = new int[seeds.length];
+		for (int i=0; i<seeds.length; i++) {
+			scores[i] = batch.getGame(i).getScore();
+			ticks += batch.getLength(i);
+		}
+
+		return scores;
+	}
+
+	/** Play the games over and over for a while, and report the rate. */
+	private static void run(String name, long[] seeds, double seconds, boolean batch, boolean report) {
+		long checksum = 0;
+		ticks = 0;
+
+		long start = System.nanoTime();
+		long end = start + (long)(seconds*1e9);
+
+		while (System.nanoTime() < end) {
+			int[] scores = batch ? batched(seeds) : sequential(seeds);
+			for (int score : scores)
+				checksum += score;
+		}
+
+		long elapsed = System.nanoTime() - start;
+		if (report)
+			System.out.printf("%-18s %12.0f ticks/s (checksum %d)%n", name, ticks/(elapsed/1e9), checksum);
+	}
+}
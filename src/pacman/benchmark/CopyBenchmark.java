@@ -0,0 +1,86 @@
+package pacman.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.GamePool;
+
+/**
+ * Compares Game.copy() with copies recycled through a GamePool, in copies per second
+ * and bytes allocated per copy, on states sampled from random games.
+ *
+ * Usage: CopyBenchmark [seconds per run]
+ */
+public class CopyBenchmark {
+
+	public static void main(String[] args) {
+		double seconds = (args.length > 0) ? Double.parseDouble(args[0]) : 2;
+		Game[] states = sampleStates(64, new Random(0));
+
+		// Warm up both, then measure
+		for (int round=0; round<2; round++) {
+			boolean report = (round == 1);
+			run("copy()", states, seconds, false, report);
+			run("GamePool", states, seconds, true, report);
+		}
+	}
+
+	/** Copy the states round-robin for a while, and report the rate. */
+	private static void run(String name, Game[] states, double seconds, boolean pooled, boolean report) {
+		GamePool pool = new GamePool();
+		long checksum = 0;
+		long copies = 0;
+
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		long end = start + (long)(seconds*1e9);
+
+		while (System.nanoTime() < end) {
+			for (int i=0; i<1000; i++) {
+				Game state = states[(int)(copies++ % states.length)];
+				Game copy = pooled ? pool.acquire(state) : state.copy();
+				checksum += copy.getPacmanCurrentNodeIndex();
+				if (pooled)
+					pool.release(copy);
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+		double perCopy = (bytes < 0) ? Double.NaN : (allocatedBytes()-bytes)/(double)copies;
+
+		if (report)
+			System.out.printf("%-10s %12.0f copies/s %10.1f bytes/copy (checksum %d)%n",
+					name, copies/(elapsed/1e9), perCopy, checksum);
+	}
+
+	/** Play random games and keep states from along the way. */
+	static Game[] sampleStates(int count, Random rng) {
+		List<Game> states = new ArrayList<Game>();
+		StandardGhosts ghosts = new StandardGhosts(rng.nextLong());
+
+		while (states.size() < count) {
+			Game game = new Game(rng.nextLong());
+			while (!game.gameOver() && states.size() < count) {
+				MOVE[] moves = game.getPossibleMoves(game.getPacmanCurrentNodeIndex());
+				game.advanceGame(moves[rng.nextInt(moves.length)], ghosts.getMove(game.copy(), -1));
+				if (rng.nextInt(50) == 0)
+					states.add(game.copy());
+			}
+		}
+
+		return states.toArray(new Game[states.size()]);
+	}
+
+	/** Bytes this thread has allocated so far, where the JVM can tell, or -1. */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+}
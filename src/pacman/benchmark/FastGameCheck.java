@@ -0,0 +1,127 @@
+package pacman.benchmark;
+
+import java.util.EnumMap;
+import java.util.Random;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.FastGame;
+import pacman.game.Game;
+import pacman.game.ReadOnlyGame;
+
+/**
+ * Steps a Game and a FastGame side by side with the same seeds and moves, and stops at the first
+ * tick where their states differ. Moves come from the standard ghosts, from random (often illegal)
+ * choices, or are left out, so the fallbacks and random turns of both engines get exercised.
+ * Global reversals are off, since both engines draw them from Math.random(). Then compares their
+ * speed in ticks per second.
+ *
+ * Usage: FastGameCheck [games] [seconds per run]
+ */
+public class FastGameCheck {
+
+	private static final MOVE[] MOVES = MOVE.values();
+	private static final GHOST[] GHOSTS = GHOST.values();
+
+	public static void main(String[] args) {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+		double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 2;
+
+		if (!check(games, new Random(0)))
+			System.exit(1);
+
+		// Warm up both, then measure
+		for (int round=0; round<2; round++) {
+			boolean report = (round == 1);
+			run("Game", seconds, false, report);
+			run("FastGame", seconds, true, report);
+		}
+	}
+
+	/** Play games in both engines, and report the first difference. */
+	private static boolean check(int games, Random rng) {
+		long ticks = 0;
+
+		for (int g=0; g<games; g++) {
+			long seed = rng.nextLong();
+			int maze = g % 4;
+			Game game = new Game(seed, maze);
+			FastGame fast = new FastGame(seed, maze);
+			game.setGlobalReversals(false);
+			fast.setGlobalReversals(false);
+
+			StandardGhosts ghosts = new StandardGhosts(seed);
+			int source = g % 3; // Of ghost moves
+
+			while (!game.gameOver()) {
+				MOVE pacManMove = MOVES[rng.nextInt(MOVES.length)];
+				EnumMap<GHOST,MOVE> ghostMoves = null;
+
+				if (source == 0)
+					ghostMoves = ghosts.getMove(new ReadOnlyGame(game), -1);
+				else if (source == 1) {
+					ghostMoves = new EnumMap<GHOST,MOVE>(GHOST.class);
+					for (GHOST ghost : GHOSTS)
+						if (rng.nextInt(4) > 0)
+							ghostMoves.put(ghost, MOVES[rng.nextInt(MOVES.length)]);
+				}
+
+				fast.advanceGame(pacManMove, ghostMoves); // First, since Game fills in missing ghosts
+				game.advanceGame(pacManMove, ghostMoves);
+				ticks++;
+
+				String expected = game.getGameState();
+				String actual = fast.getGameState();
+				if (!expected.equals(actual) || game.gameOver() != fast.gameOver()) {
+					System.out.println("ERROR: engines differ in game "+g+" (seed "+seed+", maze "+maze+") at time "+game.getTotalTime());
+					System.out.println("Game:     "+expected+(game.gameOver() ? " (over)" : ""));
+					System.out.println("FastGame: "+actual+(fast.gameOver() ? " (over)" : ""));
+					return false;
+				}
+			}
+		}
+
+		System.out.println("Engines agree on "+games+" games, "+ticks+" ticks");
+		return true;
+	}
+
+	/** Play random games for a while, and report the rate. */
+	private static void run(String name, double seconds, boolean fast, boolean report) {
+		Random rng = new Random(1);
+		EnumMap<GHOST,MOVE> ghostMoves = new EnumMap<GHOST,MOVE>(GHOST.class);
+		int[] ghostOrdinals = new int[GHOSTS.length];
+		long checksum = 0;
+		long ticks = 0;
+
+		long start = System.nanoTime();
+		long end = start + (long)(seconds*1e9);
+
+		while (System.nanoTime() < end) {
+			long seed = rng.nextLong();
+			Game game = fast ? null : new Game(seed);
+			FastGame fastGame = fast ? new FastGame(seed) : null;
+
+			while (fast ? !fastGame.gameOver() : !game.gameOver()) {
+				int pacManMove = rng.nextInt(4);
+				for (int i=0; i<GHOSTS.length; i++)
+					ghostOrdinals[i] = rng.nextInt(4);
+
+				if (fast)
+					fastGame.advanceGame(pacManMove, ghostOrdinals);
+				else {
+					for (int i=0; i<GHOSTS.length; i++)
+						ghostMoves.put(GHOSTS[i], MOVES[ghostOrdinals[i]]);
+					game.advanceGame(MOVES[pacManMove], ghostMoves);
+				}
+				ticks++;
+			}
+
+			checksum += fast ? fastGame.getScore() : game.getScore();
+		}
+
+		long elapsed = System.nanoTime() - start;
+		if (report)
+			System.out.printf("%-10s %12.0f ticks/s (checksum %d)%n", name, ticks/(elapsed/1e9), checksum);
+	}
+}
@@ -0,0 +1,152 @@
+package pacman.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import pacman.entries.ghosts.StandardGhosts;
+import pacman.entries.pacman.CustomFeatureSet;
+import pacman.entries.pacman.FeatureSet;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.ReadOnlyGame;
+import pacman.game.internal.Maze;
+import pacman.game.internal.MazeGenerator;
+
+/**
+ * Generates mazes of growing size and measures, for each: loading the maze and its distances, the heap it takes,
+ * games per second against the standard ghosts, CustomFeatureSet extraction, and building and querying the
+ * PathsCache. The mazes replace maze A, which is the only one a game reaches with MAX_LEVELS at 1.
+ * Building the PathsCache grows with junctions times nodes, so once it runs out of memory or takes
+ * longer than MAX_BUILD_MS, the larger mazes skip it, and the features, which need it.
+ *
+ * Usage: MazeScaling [seconds per measurement] [nodes...]
+ */
+public class MazeScaling {
+
+	private static final MOVE[] MOVES = MOVE.values();
+	private static final int[] SIZES = {1000, 2000, 5000, 10000, 20000, 50000};
+
+	private static final double MAX_BUILD_MS = 60000; // Beyond this, larger mazes skip the paths cache
+
+	private static String pathsSkipped; // Why larger mazes skip the paths cache, once a smaller one failed
+
+	public static void main(String[] args) throws IOException {
+		double seconds = (args.length > 0) ? Double.parseDouble(args[0]) : 1;
+		int[] sizes = SIZES;
+		if (args.length > 1) {
+			sizes = new int[args.length-1];
+			for (int i=1; i<args.length; i++)
+				sizes[i-1] = Integer.parseInt(args[i]);
+		}
+
+		File directory = new File(System.getProperty("java.io.tmpdir"), "pacman-mazes");
+
+		// Warm up on the smallest, then measure
+		measure(sizes[0], directory, seconds, false);
+		System.out.printf("%7s %6s %8s %8s %14s %10s %9s %10s %9s %9s%n",
+				"nodes", "juncs", "load ms", "heap MB", "distances MB", "ticks/s", "feat us", "paths ms", "path us", "paths MB");
+		for (int size : sizes)
+			measure(size, directory, seconds, true);
+	}
+
+	/** Generate one maze and measure everything on it. */
+	private static void measure(int size, File directory, double seconds, boolean report) throws IOException {
+		String name = "scale"+size;
+		File file = new MazeGenerator(size).generate(name, size, directory);
+
+		long heap = usedHeap();
+		long start = System.nanoTime();
+		Maze maze = new Maze(file, new File(directory, "d"+name));
+		double loadMs = (System.nanoTime()-start)/1e6;
+		double heapMb = (usedHeap()-heap)/1e6;
+		double distancesMb = maze.shortestPathDistances.bytes()/1e6;
+		Game.setMaze(0, maze);
+
+		// Games, keeping some states for the features and paths
+		List<Game> states = new ArrayList<Game>();
+		Random rng = new Random(size);
+		long ticks = 0;
+		start = System.nanoTime();
+		long end = start + (long)(seconds*1e9);
+
+		while (System.nanoTime() < end) {
+			Game game = new Game(rng.nextLong());
+			Game view = new ReadOnlyGame(game);
+			StandardGhosts ghosts = new StandardGhosts(rng.nextLong());
+
+			while (!game.gameOver() && System.nanoTime() < end) {
+				game.advanceGame(MOVES[rng.nextInt(MOVES.length)], ghosts.getMove(view, -1));
+				if (++ticks % 97 == 0 && states.size() < 1000)
+					states.add(game.copy());
+			}
+		}
+		double ticksPerSecond = ticks/((System.nanoTime()-start)/1e9);
+
+		// Paths cache, built by the first query
+		String pathsMs = "-", pathUs = "-", pathsMb = "-";
+		boolean built = false;
+		if (pathsSkipped == null) {
+			Game game = states.get(0);
+			int nodes = game.getNumberOfNodes()-1; // Not the lair
+			try {
+				heap = usedHeap();
+				start = System.nanoTime();
+				game.getShortestPath(0, nodes-1);
+				double buildMs = (System.nanoTime()-start)/1e6;
+				built = true;
+				pathsMs = String.format("%.0f", buildMs);
+				pathsMb = String.format("%.1f", (usedHeap()-heap)/1e6);
+				if (buildMs > MAX_BUILD_MS)
+					pathsSkipped = "too slow";
+
+				long queries = 0;
+				start = System.nanoTime();
+				end = start + (long)(seconds*1e9);
+				while (System.nanoTime() < end) {
+					game.getShortestPath(rng.nextInt(nodes), rng.nextInt(nodes));
+					queries++;
+				}
+				pathUs = String.format("%.2f", (System.nanoTime()-start)/1e3/queries);
+			} catch (OutOfMemoryError e) {
+				pathsSkipped = "no memory";
+				pathsMs = pathsSkipped;
+			}
+		} else {
+			pathsMs = pathsSkipped;
+		}
+
+		// Features for every legal move, which need the paths cache for the distances of ghosts
+		String featureUs = "-";
+		if (built) {
+			FeatureSet prototype = new CustomFeatureSet();
+			long extracts = 0;
+			start = System.nanoTime();
+			end = start + (long)(seconds*1e9);
+			while (System.nanoTime() < end) {
+				Game state = states.get((int)(extracts % states.size()));
+				for (MOVE move : state.getPossibleMoves(state.getPacmanCurrentNodeIndex())) {
+					prototype.extract(state, move);
+					extracts++;
+				}
+			}
+			featureUs = String.format("%.2f", (System.nanoTime()-start)/1e3/extracts);
+		}
+
+		if (report)
+			System.out.printf("%7d %6d %8.0f %8.1f %14.1f %10.0f %9s %10s %9s %9s%n", maze.graph.length, maze.junctionIndices.length,
+					loadMs, heapMb, distancesMb, ticksPerSecond, featureUs, pathsMs, pathUs, pathsMb);
+
+		Game.setMaze(0, null); // Let it go before the next one
+	}
+
+	/** Heap in use after collecting garbage. */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i=0; i<3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
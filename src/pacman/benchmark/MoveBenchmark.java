@@ -0,0 +1,77 @@
+package pacman.benchmark;
+
+import java.util.EnumMap;
+import java.util.Random;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.GamePool;
+
+/**
+ * Compares three ways for a search to expand a node into its children, one tick each: advancing
+ * a copy(), advancing a copy recycled through a GamePool, and makeMove()/unmakeMove() on the node
+ * itself. Reports children per second on states sampled from random games.
+ *
+ * Usage: MoveBenchmark [seconds per run]
+ */
+public class MoveBenchmark {
+
+	private static final MOVE[] MOVES = {MOVE.UP, MOVE.RIGHT, MOVE.DOWN, MOVE.LEFT};
+
+	public static void main(String[] args) {
+		double seconds = (args.length > 0) ? Double.parseDouble(args[0]) : 2;
+		Game[] states = CopyBenchmark.sampleStates(64, new Random(0));
+
+		EnumMap<GHOST,MOVE> ghostMoves = new EnumMap<GHOST,MOVE>(GHOST.class);
+		for (GHOST ghost : GHOST.values())
+			ghostMoves.put(ghost, MOVE.NEUTRAL);
+
+		// Warm up all three, then measure
+		for (int round=0; round<2; round++) {
+			boolean report = (round == 1);
+			run("copy()", states, ghostMoves, seconds, 0, report);
+			run("GamePool", states, ghostMoves, seconds, 1, report);
+			run("make/unmake", states, ghostMoves, seconds, 2, report);
+		}
+	}
+
+	/** Expand the states round-robin for a while, and report the rate. */
+	private static void run(String name, Game[] states, EnumMap<GHOST,MOVE> ghostMoves, double seconds, int mode, boolean report) {
+		GamePool pool = new GamePool();
+		Game.Undo undo = new Game.Undo();
+		long checksum = 0;
+		long children = 0;
+
+		long start = System.nanoTime();
+		long end = start + (long)(seconds*1e9);
+
+		while (System.nanoTime() < end) {
+			for (int i=0; i<1000; i++) {
+				Game state = states[(int)(children % states.length)];
+				MOVE move = MOVES[(int)(children++ / states.length % MOVES.length)];
+
+				if (mode == 0) {
+					Game child = state.copy();
+					child.advanceGame(move, ghostMoves);
+					checksum += child.getScore();
+				}
+				else if (mode == 1) {
+					Game child = pool.acquire(state);
+					child.advanceGame(move, ghostMoves);
+					checksum += child.getScore();
+					pool.release(child);
+				}
+				else {
+					state.makeMove(move, ghostMoves, undo);
+					checksum += state.getScore();
+					state.unmakeMove(undo);
+				}
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+		if (report)
+			System.out.printf("%-12s %12.0f children/s (checksum %d)%n", name, children/(elapsed/1e9), checksum);
+	}
+}
@@ -0,0 +1,125 @@
+package pacman.benchmark;
+
+import java.util.Random;
+
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.game.internal.Maze;
+import pacman.game.internal.PathsCache;
+
+/**
+ * Times the queries of the PathsCache of one maze over the same random sources, targets and last moves:
+ * the distance a ghost must go, which is what the features and the ghosts ask for, and the paths of a
+ * ghost and of Ms Pac-Man, both as new arrays and copied into one buffer. The same queries go to
+ * LegacyPathsCache, the cache before it was flattened, as the baseline, and A* is timed for comparison.
+ * Also reports how long each cache takes to build and the heap it takes.
+ *
+ * Usage: PathsBenchmark [maze] [seconds per measurement]
+ */
+public class PathsBenchmark {
+
+	private static final int QUERIES = 1 << 16;
+
+	private static long checksum; // So that no query can be skipped
+
+	public static void main(String[] args) {
+		int index = (args.length > 0) ? Integer.parseInt(args[0]) : 0;
+		double seconds = (args.length > 1) ? Double.parseDouble(args[1]) : 1;
+
+		Game game = new Game(0, index);
+		Maze maze = game.getCurrentMaze();
+
+		System.out.printf("Maze %d: %d nodes, %d junctions%n", index, maze.graph.length, maze.junctionIndices.length);
+
+		long heap = usedHeap();
+		long start = System.nanoTime();
+		LegacyPathsCache legacy = new LegacyPathsCache(index);
+		report("legacy cache", start, heap);
+
+		heap = usedHeap();
+		start = System.nanoTime();
+		PathsCache cache = new PathsCache(index);
+		report("cache", start, heap);
+
+		// Any node but the lair, with a last move it could have made
+		Random rng = new Random(0);
+		int[] from = new int[QUERIES], to = new int[QUERIES];
+		MOVE[] moves = new MOVE[QUERIES];
+		for (int i=0; i<QUERIES; i++) {
+			do {
+				from[i] = rng.nextInt(maze.graph.length);
+			} while (from[i] == maze.lairNodeIndex);
+			do {
+				to[i] = rng.nextInt(maze.graph.length);
+			} while (to[i] == maze.lairNodeIndex);
+
+			MOVE[] possible = game.getPossibleMoves(from[i]);
+			moves[i] = possible[rng.nextInt(possible.length)].opposite();
+		}
+
+		// Warm up, then measure
+		for (int round=0; round<2; round++) {
+			boolean report = (round == 1);
+			run("ghost distance, legacy", cache, legacy, game, from, to, moves, seconds, 6, report);
+			run("ghost distance", cache, legacy, game, from, to, moves, seconds, 0, report);
+			run("ghost path, legacy", cache, legacy, game, from, to, moves, seconds, 7, report);
+			run("ghost path", cache, legacy, game, from, to, moves, seconds, 1, report);
+			run("ghost path, buffer", cache, legacy, game, from, to, moves, seconds, 2, report);
+			run("Ms Pac-Man path, legacy", cache, legacy, game, from, to, moves, seconds, 8, report);
+			run("Ms Pac-Man path", cache, legacy, game, from, to, moves, seconds, 3, report);
+			run("Ms Pac-Man path, buffer", cache, legacy, game, from, to, moves, seconds, 4, report);
+			run("A* path", cache, legacy, game, from, to, moves, seconds, 5, report);
+		}
+
+		System.out.println("(checksum "+checksum+")");
+	}
+
+	/** Answer queries of one kind for a while, and report the time each took. */
+	private static void run(String name, PathsCache cache, LegacyPathsCache legacy, Game game, int[] from, int[] to, MOVE[] moves,
+			double seconds, int kind, boolean report) {
+		Maze maze = game.getCurrentMaze();
+		int[] buffer = new int[4*maze.graph.length];
+		long queries = 0;
+		long sum = 0;
+
+		long start = System.nanoTime();
+		long end = start + (long)(seconds*1e9);
+
+		while (System.nanoTime() < end) {
+			for (int i=0; i<QUERIES; i++) {
+				switch (kind) {
+				case 0: sum += cache.getPathDistanceFromA2B(from[i], to[i], moves[i]); break;
+				case 1: sum += cache.getPathFromA2B(from[i], to[i], moves[i]).length; break;
+				case 2: sum += cache.getPathFromA2B(from[i], to[i], moves[i], buffer); break;
+				case 3: sum += cache.getPathFromA2B(from[i], to[i]).length; break;
+				case 4: sum += cache.getPathFromA2B(from[i], to[i], buffer); break;
+				case 6: sum += legacy.getPathDistanceFromA2B(from[i], to[i], moves[i]); break;
+				case 7: sum += legacy.getPathFromA2B(from[i], to[i], moves[i]).length; break;
+				case 8: sum += legacy.getPathFromA2B(from[i], to[i]).length; break;
+				default: sum += maze.astar.computePathsAStar(from[i], to[i], moves[i], game).length; break;
+				}
+			}
+			queries += QUERIES;
+		}
+
+		double ns = (System.nanoTime()-start)/(double)queries;
+		checksum += sum;
+		if (report)
+			System.out.printf("%-24s %10.1f ns%n", name, ns);
+	}
+
+	/** Report how long a cache took to build since start, and the heap it added to heap. */
+	private static void report(String name, long start, long heap) {
+		double buildMs = (System.nanoTime()-start)/1e6;
+		double cacheMb = (usedHeap()-heap)/1e6;
+		System.out.printf("%-24s built in %.0f ms, %.1f MB%n", name, buildMs, cacheMb);
+	}
+
+	/** Heap in use after collecting garbage. */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i=0; i<3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
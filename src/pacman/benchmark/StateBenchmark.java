@@ -0,0 +1,66 @@
+package pacman.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import pacman.game.Game;
+
+/**
+ * Compares the string game state (getGameState/setGameState) with the binary one
+ * (writeState/readState), in round trips per second and bytes per state, on states
+ * sampled from random games.
+ *
+ * Usage: StateBenchmark [seconds per run]
+ */
+public class StateBenchmark {
+
+	public static void main(String[] args) {
+		double seconds = (args.length > 0) ? Double.parseDouble(args[0]) : 2;
+		Game[] states = CopyBenchmark.sampleStates(64, new Random(0));
+
+		// Warm up both, then measure
+		for (int round=0; round<2; round++) {
+			boolean report = (round == 1);
+			run("string", states, seconds, false, report);
+			run("binary", states, seconds, true, report);
+		}
+	}
+
+	/** Encode and decode the states round-robin for a while, and report the rate. */
+	private static void run(String name, Game[] states, double seconds, boolean binary, boolean report) {
+		ByteBuffer buffer = ByteBuffer.allocate(1<<16);
+		Game decoded = states[0].copy();
+		long checksum = 0;
+		long bytes = 0;
+		long trips = 0;
+
+		long start = System.nanoTime();
+		long end = start + (long)(seconds*1e9);
+
+		while (System.nanoTime() < end) {
+			for (int i=0; i<1000; i++) {
+				Game state = states[(int)(trips++ % states.length)];
+
+				if (binary) {
+					buffer.clear();
+					state.writeState(buffer);
+					bytes += buffer.position();
+					buffer.flip();
+					decoded.readState(buffer);
+				}
+				else {
+					String string = state.getGameState();
+					bytes += string.length()+1; // As a line in a replay
+					decoded.setGameState(string);
+				}
+
+				checksum += decoded.getScore();
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+		if (report)
+			System.out.printf("%-8s %12.0f round trips/s %8.1f bytes/state (checksum %d)%n",
+					name, trips/(elapsed/1e9), bytes/(double)trips, checksum);
+	}
+}
@@ -1,5 +1,6 @@
 package pacman.entries.ghosts;
 
+import java.io.Serializable;
 import java.util.EnumMap;
 import java.util.Random;
 
@@ -7,18 +8,38 @@ import pacman.controllers.Controller;
 import pacman.game.Constants.DM;
 import pacman.game.Constants.GHOST;
 import pacman.game.Constants.MOVE;
+import pacman.game.FastGame;
 import pacman.game.Game;
 
 /**
  * Usually chase when non-edible and run away when edible.
  * Have some probability of moving randomly in both cases.
  */
-public class StandardGhosts extends Controller<EnumMap<GHOST,MOVE>>
+public class StandardGhosts extends Controller<EnumMap<GHOST,MOVE>> implements Serializable
 {
-	private Random rng = new Random();
+	private static final long serialVersionUID = 1L;
+
+	private static final MOVE[] MOVES = MOVE.values();
+	private static final int NEUTRAL = MOVE.NEUTRAL.ordinal();
+
+	private Random rng;
 	private static final double CONSISTENCY = 0.8;
 	
 	private EnumMap<GHOST,MOVE> myMoves = new EnumMap<GHOST,MOVE>(GHOST.class);
+	
+	public StandardGhosts() {
+		rng = new Random();
+	}
+	
+	/** Reproducible ghosts. */
+	public StandardGhosts(long seed) {
+		rng = new Random(seed);
+	}
+	
+	/** Restart the random moves from a seed. */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
 
 	/** Fill all ghost moves. */
 	public EnumMap<GHOST, MOVE> getMove(Game game, long timeDue) {
@@ -32,26 +53,60 @@ public class StandardGhosts extends Controller<EnumMap<GHOST,MOVE>>
 		return myMoves;
 	}
 	
+	/** Fill all ghost moves of a FastGame the same way, as move ordinals, drawing the same random numbers;
+	 *  ghosts not due a decision get NEUTRAL. */
+	public void getMoves(FastGame game, int[] moves) {
+		
+		for (int ghost=0; ghost<moves.length; ghost++) {
+			if (!game.doesGhostRequireAction(ghost)) {
+				moves[ghost] = NEUTRAL;
+				continue;
+			}
+			
+			int myNextMove = randomMove();
+			
+			if (myNextMove < 0) {
+				
+				int sourceNode = game.getGhostCurrentNodeIndex(ghost);
+				int targetNode = game.getPacmanCurrentNodeIndex();
+				int myLastMove = game.getGhostLastMoveMade(ghost);
+				
+				if (game.getGhostEdibleTime(ghost) > 0)
+					myNextMove = game.getApproximateNextMoveAwayFromTarget(sourceNode,targetNode,myLastMove);
+				else
+					myNextMove = game.getApproximateNextMoveTowardsTarget(sourceNode,targetNode,myLastMove);
+			}
+			
+			moves[ghost] = myNextMove;
+		}
+	}
+	
 	/** Fill one ghost move. */
 	private MOVE getMove(GHOST ghost, Game game) {
 		
 		DM metric = DM.PATH;
-		MOVE[] allMoves = MOVE.values();
 		
 		MOVE myLastMove = game.getGhostLastMoveMade(ghost);
-		MOVE myNextMove = allMoves[rng.nextInt(allMoves.length)];
+		int myNextMove = randomMove();
 		
-		if (rng.nextDouble() < CONSISTENCY) {
+		if (myNextMove < 0) {
 			
 			int sourceNode = game.getGhostCurrentNodeIndex(ghost);
 			int targetNode = game.getPacmanCurrentNodeIndex();
 			
 			if (game.getGhostEdibleTime(ghost) > 0)
-				myNextMove = game.getApproximateNextMoveAwayFromTarget(sourceNode,targetNode,myLastMove,metric);
+				return game.getApproximateNextMoveAwayFromTarget(sourceNode,targetNode,myLastMove,metric);
 			else
-				myNextMove = game.getApproximateNextMoveTowardsTarget(sourceNode,targetNode,myLastMove,metric);
+				return game.getApproximateNextMoveTowardsTarget(sourceNode,targetNode,myLastMove,metric);
 		}
 		
-		return myNextMove;
+		return MOVES[myNextMove];
+	}
+	
+	/** Draw one decision: a random move, kept with probability 1-CONSISTENCY. Returns its ordinal,
+	 *  or -1 for a deliberate move instead. Both engines draw through here, so they stay in step. */
+	private int randomMove() {
+		int move = rng.nextInt(MOVES.length);
+		return (rng.nextDouble() < CONSISTENCY) ? -1 : move;
 	}
 }
@@ -10,6 +10,8 @@ import pacman.game.Constants.MOVE;
  */
 public abstract class BasicRLPacMan extends RLPacMan {
 
+	private static final long serialVersionUID = 1L;
+
 	public abstract void setMove(MOVE move);
 	public abstract MOVE[] getMoves();
 	public abstract double[] getQValues();
@@ -23,4 +25,9 @@ public abstract class BasicRLPacMan extends RLPacMan {
 	public abstract QFunction getQfunc();
 	public abstract void recordAdvisedState(Game game, MOVE advisedMove);
 	
+	/** This learner's own policy is the one tested. */
+	public BasicRLPacMan getPolicyLearner() {
+		return this;
+	}
+	
 }
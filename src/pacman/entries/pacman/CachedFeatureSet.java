@@ -0,0 +1,66 @@
+package pacman.entries.pacman;
+
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+import pacman.utils.TranspositionCache;
+
+/**
+ * Wraps a feature set prototype and remembers its features by the game's position hash,
+ * so positions seen before (every episode start, corridors, a teacher and a student looking
+ * at the same state) skip the search. Only valid for feature sets that depend on nothing but
+ * the characters' positions, last moves and edible flags, and the pills left, which is true
+ * of the feature sets here.
+ */
+public class CachedFeatureSet extends FeatureSet {
+
+	private static final long serialVersionUID = 1L;
+
+	private final FeatureSet prototype; // Does the work
+	private final int capacity; // Of the cache
+	private transient volatile TranspositionCache<FeatureSet> cache; // Not saved with checkpoints
+
+	public CachedFeatureSet(FeatureSet prototype, int capacity) {
+		this.prototype = prototype;
+		this.capacity = capacity;
+	}
+
+	/** Report how many features there are. */
+	public int size() {
+		return prototype.size();
+	}
+
+	/** Retrieve a feature value of the prototype. */
+	public double get(int i) {
+		return prototype.get(i);
+	}
+
+	/** Look up the features for this state-action pair, or extract and remember them. */
+	public FeatureSet extract(Game game, MOVE move) {
+		TranspositionCache<FeatureSet> cache = cache();
+		FeatureSet features = cache.get(game.getHash(), move);
+
+		if (features == null) {
+			features = prototype.extract(game, move);
+			cache.put(game.getHash(), move, features);
+		}
+
+		return features;
+	}
+
+	public double[] getVAlues() {
+		return prototype.getVAlues();
+	}
+
+	/** The cache, made on first use (and again after a checkpoint is read). */
+	private TranspositionCache<FeatureSet> cache() {
+		TranspositionCache<FeatureSet> cache = this.cache;
+		if (cache != null)
+			return cache;
+
+		synchronized (this) {
+			if (this.cache == null)
+				this.cache = new TranspositionCache<FeatureSet>(capacity);
+			return this.cache;
+		}
+	}
+}
@@ -15,6 +15,8 @@ import pacman.game.Game;
  */
 public class CustomFeatureSetOnlyState extends FeatureSet {
 
+	private static final long serialVersionUID = 1L;
+
 	private int DEPTH = 4; // Of search
 	private int FEATURES = 7; // How many
 	private double MAX_DISTANCE = 200; // Between nodes
@@ -10,6 +10,8 @@ import pacman.game.Game;
  * Features based on object counts a few junctions ahead in the move direction.
  */
 public class DepthFeatureSet extends FeatureSet {
+
+	private static final long serialVersionUID = 1L;
 	
 	// Lazy enum
 	private int REGULAR_PILL = 0;
@@ -1,12 +1,16 @@
 package pacman.entries.pacman;
 
+import java.io.Serializable;
+
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
 
 /**
  * Superclass for feature sets.
  */
-public abstract class FeatureSet {
+public abstract class FeatureSet implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 
 	public abstract int size();
@@ -0,0 +1,38 @@
+package pacman.entries.pacman;
+
+import pacman.controllers.Controller;
+import pacman.game.Constants.MOVE;
+import pacman.game.Game;
+
+/**
+ * Plays a frozen policy greedily, the way a learner does in test mode.
+ * Holds no per-game state, so one instance can play many games at once.
+ */
+public class GreedyPacMan extends Controller<MOVE> {
+
+	private final FeatureSet prototype; // Class to use
+	private final QFunction Qfunction; // Frozen policy
+
+	/** Freeze a copy of the learner's current policy. */
+	public GreedyPacMan(BasicRLPacMan learner) {
+		prototype = learner.getPrototype();
+		Qfunction = learner.getQfunc().copy();
+	}
+
+	/** Take the first action with the highest Q-value. */
+	public MOVE getMove(Game game, long timeDue) {
+		MOVE[] actions = game.getPossibleMoves(game.getPacmanCurrentNodeIndex());
+
+		int bestActionIndex = 0;
+		double bestQ = -Double.MAX_VALUE;
+		for (int i=0; i<actions.length; i++) {
+			double value = Qfunction.evaluate(prototype.extract(game, actions[i]));
+			if (i == 0 || value > bestQ) {
+				bestQ = value;
+				bestActionIndex = i;
+			}
+		}
+
+		return actions[bestActionIndex];
+	}
+}
@@ -1,6 +1,7 @@
 package pacman.entries.pacman;
 
 import java.awt.AlphaComposite;
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -9,7 +10,9 @@ import pacman.utils.DataFile;
 /**
  * A linear function of the feature values.
  */
-public class QFunction {
+public class QFunction implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private double[] weights; // Weight vector
 	private double bias; // For a constant feature
@@ -43,6 +46,19 @@ public class QFunction {
 		file.close();
 	}
 
+	/** Copy the weights, with fresh traces. */
+	public QFunction copy() {
+		QFunction copy = new QFunction(weights.length);
+		System.arraycopy(weights, 0, copy.weights, 0, weights.length);
+		copy.bias = bias;
+		return copy;
+	}
+	
+	private QFunction(int size) {
+		weights = new double[size];
+		eligibility = new double[size];
+	}
+
 	/** Estimate the Q-value given the features for an action. */
 	public double evaluate(FeatureSet features) {
 		double sum = bias;
@@ -15,6 +15,8 @@ import pacman.game.Constants.MOVE;
  * Q(lambda) with function approximation.
  */
 public class QPacMan extends BasicRLPacMan {
+
+	private static final long serialVersionUID = 1L;
 	
 	private Random rng = new Random();
 	private FeatureSet prototype; // Class to use
@@ -28,6 +30,7 @@ public class QPacMan extends BasicRLPacMan {
 	private int lastScore; // Last known game score
 	private int bestActionIndex; // Index of current best action
 	private int lastActionIndex; // Index of action actually being taken
+	private int lastTicks; // Duration of the previous step, over which its traces decay
 	private boolean testMode; // Don't explore or learn or take advice?
 
 	private double EPSILON = 0.05; // Exploration rate
@@ -57,6 +60,7 @@ public class QPacMan extends BasicRLPacMan {
 	public void startEpisode(Game game, boolean testMode) {
 		this.testMode = testMode;
 		lastScore = 0;
+		lastTicks = 1;
 		Qfunction.clearTraces();
 		evaluateMoves(game);
 	}
@@ -76,12 +80,21 @@ public class QPacMan extends BasicRLPacMan {
 
 	/** Prepare for the next move, and learn if appropriate. */
 	public void processStep(Game game) {
+		processStep(game, 1);
+	}
+
+	/** Learn from a step of several ticks, discounting over all of them.
+	 *  The traces so far belong to the previous step, so they decay over its ticks instead. */
+	public void processStep(Game game, int ticks) {
+		double gamma = Math.pow(GAMMA, ticks);
+		double traceGamma = Math.pow(GAMMA, lastTicks);
+		lastTicks = ticks;
 		
 		// Eligibility traces
 		if (lastActionIndex != bestActionIndex)
 			Qfunction.clearTraces();
 		else
-			Qfunction.decayTraces(GAMMA*LAMBDA);
+			Qfunction.decayTraces(traceGamma*LAMBDA);
 		
 		Qfunction.addTraces(features[lastActionIndex]);
 
@@ -92,7 +105,7 @@ public class QPacMan extends BasicRLPacMan {
 		
 		if (!game.gameOver()) {
 			evaluateMoves(game);
-			delta += (GAMMA * qvalues[bestActionIndex]);
+			delta += (gamma * qvalues[bestActionIndex]);
 		}
 		
 		// Gradient descent update
@@ -232,4 +245,9 @@ public class QPacMan extends BasicRLPacMan {
 	public QFunction getQfunc() {
 		return Qfunction;
 	}
+
+	/** Reproducible exploration. */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
 }
@@ -1,5 +1,7 @@
 package pacman.entries.pacman;
 
+import java.io.Serializable;
+
 import pacman.controllers.Controller;
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
@@ -7,7 +9,9 @@ import pacman.game.Game;
 /**
  * Superclass for all learners (basic and student).
  */
-public abstract class RLPacMan extends Controller<MOVE> {	
+public abstract class RLPacMan extends Controller<MOVE> implements Serializable {	
+
+	private static final long serialVersionUID = 1L;
 
 	public abstract void startEpisode(Game game, boolean testMode);
 	public abstract void processStep(Game game);
@@ -15,6 +19,17 @@ public abstract class RLPacMan extends Controller<MOVE> {
 	public abstract void saveStates(String filename, double sampleSize);
 	public abstract void loadVisitedState(String filename);
 
+	public void processStep(Game game, int ticks) { // Override to discount a step of several ticks (see DecisionPoints)
+		processStep(game);
+	}
+
+	public void setSeed(long seed) { // Override to make exploration reproducible
+	}
+
+	public BasicRLPacMan getPolicyLearner() { // Override to expose the learner whose policy is tested
+		return null;
+	}
+
 	public double[] episodeData() { // Override to add data to learning curves
 		double[] data = new double[0];
 		return data;
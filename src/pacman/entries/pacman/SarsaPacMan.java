@@ -28,6 +28,8 @@ import pacman.game.Constants.MOVE;
  */
 public class SarsaPacMan extends BasicRLPacMan {
 
+	private static final long serialVersionUID = 1L;
+
 	private Random rng = new Random();
 	private FeatureSet prototype; // Class to use
 	public QFunction Qfunction; // Learned policy
@@ -44,6 +46,7 @@ public class SarsaPacMan extends BasicRLPacMan {
 	private boolean doUpdate; // Perform a delayed gradient-descent update?
 	private double delta1; // First part of delayed update: r-Q(s,a)
 	private double delta2; // Second part of delayed update: yQ(s',a')
+	private int lastTicks; // Duration of the previous step, which the delayed update completes
 
 	private double EPSILON = 0.05; // Exploration rate 0.05superUn2!
 	private double ALPHA = 0.001; // Learning rate
@@ -57,7 +60,7 @@ public class SarsaPacMan extends BasicRLPacMan {
 	private boolean printStates = false;
 	private StateInfo currStateInfo;
 	private String filename = "myData/stateInfoTeacherMultiple.txt";
-	private BufferedWriter  file;
+	private transient BufferedWriter  file;
 	private HashMap<FeatureSet,ArrayList<FeatureSet>> advisedStates;
 	
 	private String maxUpdateTiming = "never"; //epidsodeEnd = at end of episode, batch = end of episode, but batch update,never = never, atState = when state is encountered
@@ -116,6 +119,7 @@ public class SarsaPacMan extends BasicRLPacMan {
 		doUpdate = false;
 		delta1 = 0;
 		delta2 = 0;
+		lastTicks = 1;
 		advisedStates = new HashMap<FeatureSet, ArrayList<FeatureSet>>();
 		currStateInfo = new StateInfo(time);
 		evaluateMoves(game);
@@ -166,18 +170,26 @@ public class SarsaPacMan extends BasicRLPacMan {
 	
 	/** Learn if appropriate, and prepare for the next move. */
 	public void processStep(Game game) {
+		processStep(game, 1);
+	}
+
+	/** Learn from a step of several ticks, discounting over all of them. The delayed update
+	 *  and the trace decay finish the previous step, so they discount over its ticks. */
+	public void processStep(Game game, int ticks) {
 		currStateInfo = new StateInfo(time);
+		double gamma = Math.pow(GAMMA, lastTicks);
+		lastTicks = ticks;
 		
 		// Do a delayed gradient-descent update
 		if (doUpdate) {
-			delta2 = (GAMMA * qvalues[lastActionIndex]);
+			delta2 = (gamma * qvalues[lastActionIndex]);
 			Qfunction.updateWeights(ALPHA*(delta1+delta2));
 //			this.maxUpdate();
 	
 		}
 		
 		// Eligibility traces
-		Qfunction.decayTraces(GAMMA*LAMBDA);
+		Qfunction.decayTraces(gamma*LAMBDA);
 		Qfunction.addTraces(features[lastActionIndex]);
 		
 
@@ -494,4 +506,9 @@ public class SarsaPacMan extends BasicRLPacMan {
 		// TODO Auto-generated method stub
 		return Qfunction;
 	}
+
+	/** Reproducible exploration. */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
 }
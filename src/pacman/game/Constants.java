@@ -91,6 +91,8 @@ public final class Constants
 //	public static final String[] distNames={"openSmallDist1","db","dc","dd"};
 	public static final String[] nodeNames={"a","b","c","d"};
 	public static final String[] distNames={"da","db","dc","dd"};
+	public static final int MAX_TABLE_NODES=4000;			//larger mazes use junction distances instead of a full table of n(n+1)/2 entries
+	public static final boolean COMPACT_DISTANCES=true;	//store junction distances in 16 bits when they fit
 
 	
 	//for GameView
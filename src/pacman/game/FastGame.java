@@ -0,0 +1,680 @@
+package pacman.game;
+
+import java.util.EnumMap;
+
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.internal.FlatMaze;
+import pacman.game.internal.GameRandom;
+import pacman.game.internal.Maze;
+
+import static pacman.game.Constants.*;
+
+/**
+ * A headless engine with the same rules as Game, for training where only ticks per second
+ * matter. The state lives in primitive fields and arrays (ghosts as int[] indexed by ordinal,
+ * pills as long[] words) and the mazes are flattened into int tables (see FlatMaze), so a tick
+ * allocates nothing and does no EnumMap lookups. Moves are MOVE ordinals.
+ *
+ * Given the same seed, maze and moves, a FastGame goes through exactly the states of a Game,
+ * random ghost turns included, and getGameState() returns the same strings. Global reversals
+ * draw from Math.random() in both engines, so they cannot be matched; disable them to compare.
+ * The benchmark FastGameCheck steps both engines side by side and checks this.
+ */
+public class FastGame
+{
+	private static final int NEUTRAL=MOVE.NEUTRAL.ordinal(), LEFT=MOVE.LEFT.ordinal();
+	private static final int[] OPPOSITE=new int[MOVE.values().length];
+	private static final MOVE[] MOVES=MOVE.values();
+	private static final GHOST[] GHOST_TYPES=GHOST.values();
+
+	static
+	{
+		for(MOVE move : MOVES)
+			OPPOSITE[move.ordinal()]=move.opposite().ordinal();
+	}
+
+	//flattened on first use
+	private static final FlatMaze[] flatMazes=new FlatMaze[NUM_MAZES];
+
+	private FlatMaze maze;
+	private long[] pills, powerPills;
+	private int mazeIndex, levelCount, currentLevelTime, totalTime, score, ghostEatMultiplier, timeOfLastGlobalReversal;
+	private boolean gameOver, globalReverse;
+	private boolean enableGlobalReversals=true;
+
+	private int pacManNodeIndex, pacManLastMoveMade, numberOfLivesRemaining;
+	private boolean hasReceivedExtraLife;
+
+	private final int[] ghostNodeIndices=new int[NUM_GHOSTS], ghostLastMovesMade=new int[NUM_GHOSTS];
+	private final int[] edibleTimes=new int[NUM_GHOSTS], lairTimes=new int[NUM_GHOSTS];
+	private final int[] ghostMoves=new int[NUM_GHOSTS];		//scratch for the EnumMap version of advanceGame
+
+	private final GameRandom rnd;
+
+	/**
+	 * Starts a new game in the first maze, like Game(seed).
+	 *
+	 * @param seed The seed for the pseudo-random number generator
+	 */
+	public FastGame(long seed)
+	{
+		this(seed,0);
+	}
+
+	/**
+	 * Starts a new game in a given maze, like Game(seed,initialMaze).
+	 *
+	 * @param seed The seed for the pseudo-random number generator
+	 * @param initialMaze The maze to start the game with
+	 */
+	public FastGame(long seed,int initialMaze)
+	{
+		rnd=new GameRandom(seed);
+
+		mazeIndex=initialMaze;
+		score=currentLevelTime=levelCount=totalTime=0;
+		ghostEatMultiplier=1;
+		gameOver=false;
+		timeOfLastGlobalReversal=-1;
+
+		_setPills(maze=flatMaze(mazeIndex));
+		_initGhosts();
+
+		pacManNodeIndex=maze.initialPacManNodeIndex;
+		pacManLastMoveMade=LEFT;
+		numberOfLivesRemaining=NUM_LIVES;
+		hasReceivedExtraLife=false;
+	}
+
+	/**
+	 * The flattened maze with this index, made the first time it is asked for, or again once Game has a new one.
+	 */
+	private static synchronized FlatMaze flatMaze(int index)
+	{
+		Maze maze=Game.getMaze(index);
+		if(flatMazes[index]==null || flatMazes[index].source!=maze)
+			flatMazes[index]=new FlatMaze(maze);
+		return flatMazes[index];
+	}
+
+	/**
+	 * _set pills.
+	 */
+	private void _setPills(FlatMaze maze)
+	{
+		pills=_allSet(maze.numPills);
+		powerPills=_allSet(maze.numPowerPills);
+	}
+
+	/**
+	 * Words with the first count bits set.
+	 */
+	private static long[] _allSet(int count)
+	{
+		long[] words=new long[(count+63)/64];
+
+		for(int i=0;i<count;i++)
+			words[i>>>6]|=1L<<i;
+
+		return words;
+	}
+
+	/**
+	 * _init ghosts.
+	 */
+	private void _initGhosts()
+	{
+		for(int i=0;i<NUM_GHOSTS;i++)
+		{
+			ghostNodeIndices[i]=maze.lairNodeIndex;
+			edibleTimes[i]=0;
+			lairTimes[i]=(int)(GHOST_TYPES[i].initialLairTime*(Math.pow(LAIR_REDUCTION,levelCount)));
+			ghostLastMovesMade[i]=NEUTRAL;
+		}
+	}
+
+	/**
+	 * _new level reset.
+	 */
+	private void _newLevelReset()
+	{
+		mazeIndex=++mazeIndex%NUM_MAZES;
+		levelCount++;
+		maze=flatMaze(mazeIndex);
+
+		currentLevelTime=0;
+		ghostEatMultiplier=1;
+
+		_setPills(maze);
+		_levelReset();
+	}
+
+	/**
+	 * _level reset.
+	 */
+	private void _levelReset()
+	{
+		ghostEatMultiplier=1;
+
+		_initGhosts();
+
+		pacManNodeIndex=maze.initialPacManNodeIndex;
+		pacManLastMoveMade=LEFT;
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	///////////////////////////  Game-engine   //////////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Same as Game.advanceGame(): moves Ms Pac-Man, then the ghosts, then updates the rest.
+	 *
+	 * @param pacManMove The move supplied by the Ms Pac-Man controller
+	 * @param ghostMoves The moves supplied by the ghosts controller (null or missing ghosts as in Game)
+	 */
+	public void advanceGame(MOVE pacManMove,EnumMap<GHOST,MOVE> ghostMoves)
+	{
+		for(int i=0;i<NUM_GHOSTS;i++)
+		{
+			MOVE move=(ghostMoves==null) ? MOVES[ghostLastMovesMade[i]] : ghostMoves.get(GHOST_TYPES[i]);
+			this.ghostMoves[i]=(move==null) ? NEUTRAL : move.ordinal();
+		}
+
+		advanceGame(pacManMove==null ? NEUTRAL : pacManMove.ordinal(),this.ghostMoves);
+	}
+
+	/**
+	 * Advances the game by one tick given move ordinals.
+	 *
+	 * @param pacManMove The ordinal of Ms Pac-Man's move
+	 * @param ghostMoves The ordinals of the ghosts' moves, or null to keep going as they are
+	 */
+	public void advanceGame(int pacManMove,int[] ghostMoves)
+	{
+		_updatePacMan(pacManMove);
+		_eatPill();
+		_eatPowerPill();
+		_updateGhosts(ghostMoves);
+
+		_feast();
+		_updateLairTimes();
+		_updatePacManExtraLife();
+
+		totalTime++;
+		currentLevelTime++;
+
+		_checkLevelState();
+	}
+
+	/**
+	 * _update pac man.
+	 */
+	private void _updatePacMan(int move)
+	{
+		int base=pacManNodeIndex*4;
+
+		//direction is correct, else try to continue, else stay put
+		if(move!=NEUTRAL && maze.neighbours[base+move]>=0)
+			pacManLastMoveMade=move;
+		else if(pacManLastMoveMade==NEUTRAL || maze.neighbours[base+pacManLastMoveMade]<0)
+			pacManLastMoveMade=NEUTRAL;
+
+		if(pacManLastMoveMade!=NEUTRAL)
+			pacManNodeIndex=maze.neighbours[base+pacManLastMoveMade];
+	}
+
+	/**
+	 * _update ghosts.
+	 */
+	private void _updateGhosts(int[] moves)
+	{
+		for(int i=0;i<NUM_GHOSTS;i++)
+		{
+			if(lairTimes[i]==0)
+			{
+				//check for neutral in case ghost just left the lair
+				if(globalReverse && ghostLastMovesMade[i]!=NEUTRAL)
+				{
+					ghostLastMovesMade[i]=OPPOSITE[ghostLastMovesMade[i]];
+					ghostNodeIndices[i]=maze.neighbours[ghostNodeIndices[i]*4+ghostLastMovesMade[i]];
+				}
+				else if(edibleTimes[i]==0 || edibleTimes[i]%GHOST_SPEED_REDUCTION!=0)
+				{
+					ghostLastMovesMade[i]=_checkGhostDir(i,moves==null ? ghostLastMovesMade[i] : moves[i]);
+					ghostNodeIndices[i]=maze.neighbours[ghostNodeIndices[i]*4+ghostLastMovesMade[i]];
+				}
+			}
+		}
+	}
+
+	/**
+	 * _check ghost dir: the move if allowed and not a reversal, else the last move, else a random one.
+	 */
+	private int _checkGhostDir(int ghost,int direction)
+	{
+		int node=ghostNodeIndices[ghost];
+		int last=ghostLastMovesMade[ghost];
+
+		if(direction!=NEUTRAL && maze.neighbours[node*4+direction]>=0 && direction!=OPPOSITE[last])
+			return direction;
+		else if(last!=NEUTRAL && maze.neighbours[node*4+last]>=0)
+			return last;
+		else
+		{
+			int entry=node*5+last;
+			if(maze.numGhostMoves[entry]<0)
+				throw new IllegalStateException("ghost "+ghost+" cannot have reached node "+node+" by "+MOVES[last]);
+
+			return maze.ghostMoves[entry*4+rnd.nextInt(maze.numGhostMoves[entry])];
+		}
+	}
+
+	/**
+	 * _eat pill.
+	 */
+	private void _eatPill()
+	{
+		int pillIndex=maze.pillIndex[pacManNodeIndex];
+
+		if(pillIndex>=0 && (pills[pillIndex>>>6]&(1L<<pillIndex))!=0)
+		{
+			score+=PILL;
+			pills[pillIndex>>>6]&=~(1L<<pillIndex);
+		}
+	}
+
+	/**
+	 * _eat power pill.
+	 */
+	private void _eatPowerPill()
+	{
+		globalReverse=false;
+
+		int powerPillIndex=maze.powerPillIndex[pacManNodeIndex];
+
+		if(powerPillIndex>=0 && (powerPills[powerPillIndex>>>6]&(1L<<powerPillIndex))!=0)
+		{
+			score+=POWER_PILL;
+			ghostEatMultiplier=1;
+			powerPills[powerPillIndex>>>6]&=~(1L<<powerPillIndex);
+
+			int newEdibleTime=(int)(EDIBLE_TIME*(Math.pow(EDIBLE_TIME_REDUCTION,levelCount)));
+
+			for(int i=0;i<NUM_GHOSTS;i++)
+				edibleTimes[i]=(lairTimes[i]==0) ? newEdibleTime : 0;
+
+			globalReverse=true;
+		}
+		else if(currentLevelTime>1 && Math.random()<GHOST_REVERSAL && enableGlobalReversals)	//random ghost reversal
+		{
+			timeOfLastGlobalReversal=totalTime;
+			globalReverse=true;
+		}
+	}
+
+	/**
+	 * _feast.
+	 */
+	private void _feast()
+	{
+		for(int i=0;i<NUM_GHOSTS;i++)
+		{
+			int distance=getShortestPathDistance(pacManNodeIndex,ghostNodeIndices[i]);
+
+			if(distance<=EAT_DISTANCE && distance!=-1)
+			{
+				if(edibleTimes[i]>0)									//pac-man eats ghost
+				{
+					score+=GHOST_EAT_SCORE*ghostEatMultiplier;
+					edibleTimes[i]=0;
+					lairTimes[i]=(int)(COMMON_LAIR_TIME*(Math.pow(LAIR_REDUCTION,levelCount)));
+					ghostNodeIndices[i]=maze.lairNodeIndex;
+					ghostLastMovesMade[i]=NEUTRAL;
+				}
+				else													//ghost eats pac-man
+				{
+					if(--numberOfLivesRemaining<=0)
+						gameOver=true;
+					else
+						_levelReset();
+
+					return;
+				}
+			}
+		}
+
+		for(int i=0;i<NUM_GHOSTS;i++)
+			if(edibleTimes[i]>0)
+				edibleTimes[i]--;
+	}
+
+	/**
+	 * _update lair times.
+	 */
+	private void _updateLairTimes()
+	{
+		for(int i=0;i<NUM_GHOSTS;i++)
+			if(lairTimes[i]>0)
+				if(--lairTimes[i]==0)
+					ghostNodeIndices[i]=maze.initialGhostNodeIndex;
+	}
+
+	/**
+	 * _update pac man extra life.
+	 */
+	private void _updatePacManExtraLife()
+	{
+		if(!hasReceivedExtraLife && score>=EXTRA_LIFE_SCORE)	//award 1 extra life at 10000 points
+		{
+			hasReceivedExtraLife=true;
+			numberOfLivesRemaining++;
+		}
+	}
+
+	/**
+	 * _check level state.
+	 */
+	private void _checkLevelState()
+	{
+		int numPills=_count(pills), numPowerPills=_count(powerPills);
+
+		//if all pills have been eaten or the time is up...
+		if((numPills==0 && numPowerPills==0) || currentLevelTime>=LEVEL_LIMIT)
+		{
+			//award any remaining pills to Ms Pac-Man
+			score+=(int)(PILL_REWARD_REDUCTION*(PILL*numPills+POWER_PILL*numPowerPills));
+
+			//put a cap on the total number of levels played
+			if(levelCount+1==MAX_LEVELS)
+				gameOver=true;
+			else
+				_newLevelReset();
+		}
+	}
+
+	/**
+	 * Bits set in some words.
+	 */
+	private static int _count(long[] words)
+	{
+		int count=0;
+		for(int i=0;i<words.length;i++)
+			count+=Long.bitCount(words[i]);
+		return count;
+	}
+
+	/**
+	 * Enables or disables random global reversals, as in Game.
+	 *
+	 * @param value Whether global reversals happen
+	 */
+	public void setGlobalReversals(boolean value)
+	{
+		enableGlobalReversals=value;
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	///////////////////  Query Methods (return only)  ///////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the game state in the format of Game.getGameState(), so the engines can be compared.
+	 *
+	 * @return The game state as a string
+	 */
+	public String getGameState()
+	{
+		StringBuilder sb=new StringBuilder();
+
+		sb.append(mazeIndex+","+totalTime+","+score+","+currentLevelTime+","+levelCount+","
+				+pacManNodeIndex+","+MOVES[pacManLastMoveMade]+","+numberOfLivesRemaining+","+hasReceivedExtraLife+",");
+
+		for(int i=0;i<NUM_GHOSTS;i++)
+			sb.append(ghostNodeIndices[i]+","+edibleTimes[i]+","+lairTimes[i]+","+MOVES[ghostLastMovesMade[i]]+",");
+
+		for(int i=0;i<maze.numPills;i++)
+			sb.append((pills[i>>>6]&(1L<<i))!=0 ? "1" : "0");
+
+		sb.append(",");
+
+		for(int i=0;i<maze.numPowerPills;i++)
+			sb.append((powerPills[i>>>6]&(1L<<i))!=0 ? "1" : "0");
+
+		sb.append(",");
+
+		sb.append(timeOfLastGlobalReversal);
+
+		return sb.toString();
+	}
+
+	public boolean gameOver()
+	{
+		return gameOver;
+	}
+
+	public int getScore()
+	{
+		return score;
+	}
+
+	public int getTotalTime()
+	{
+		return totalTime;
+	}
+
+	public int getCurrentLevelTime()
+	{
+		return currentLevelTime;
+	}
+
+	public int getMazeIndex()
+	{
+		return mazeIndex;
+	}
+
+	public int getPacmanCurrentNodeIndex()
+	{
+		return pacManNodeIndex;
+	}
+
+	public int getPacmanLastMoveMade()
+	{
+		return pacManLastMoveMade;
+	}
+
+	public int getPacmanNumberOfLivesRemaining()
+	{
+		return numberOfLivesRemaining;
+	}
+
+	public int getGhostCurrentNodeIndex(int ghost)
+	{
+		return ghostNodeIndices[ghost];
+	}
+
+	public int getGhostLastMoveMade(int ghost)
+	{
+		return ghostLastMovesMade[ghost];
+	}
+
+	public int getGhostEdibleTime(int ghost)
+	{
+		return edibleTimes[ghost];
+	}
+
+	public int getGhostLairTime(int ghost)
+	{
+		return lairTimes[ghost];
+	}
+
+	public int getNumberOfActivePills()
+	{
+		return _count(pills);
+	}
+
+	public int getNumberOfActivePowerPills()
+	{
+		return _count(powerPills);
+	}
+
+	public int getTimeOfLastGlobalReversal()
+	{
+		return timeOfLastGlobalReversal;
+	}
+
+	public int getCurrentLevel()
+	{
+		return levelCount;
+	}
+
+	public int getGhostCurrentEdibleScore()
+	{
+		return GHOST_EAT_SCORE*ghostEatMultiplier;
+	}
+
+	public boolean isPillStillAvailable(int pillIndex)
+	{
+		return (pills[pillIndex>>>6]&(1L<<pillIndex))!=0;
+	}
+
+	public boolean isPowerPillStillAvailable(int powerPillIndex)
+	{
+		return (powerPills[powerPillIndex>>>6]&(1L<<powerPillIndex))!=0;
+	}
+
+	/**
+	 * Returns the hash Game.getHash() would for this position. A FastGame does not keep it up to
+	 * date, so it is computed from scratch, in time linear in the pills.
+	 *
+	 * @return the hash of the current position
+	 */
+	public long getHash()
+	{
+		long hash=Game._zobrist(Game.HASH_MAZE,mazeIndex)^Game._zobrist(Game.HASH_PACMAN_NODE,pacManNodeIndex)
+				^Game._zobrist(Game.HASH_PACMAN_MOVE,pacManLastMoveMade);
+
+		for(int i=0;i<NUM_GHOSTS;i++)
+		{
+			hash^=Game._zobrist(Game.HASH_GHOST_NODE+i,ghostNodeIndices[i])^Game._zobrist(Game.HASH_GHOST_MOVE+i,ghostLastMovesMade[i]);
+			if(edibleTimes[i]>0)
+				hash^=Game._zobrist(Game.HASH_GHOST_EDIBLE+i,0);
+		}
+
+		for(int i=0;i<maze.numPills;i++)
+			if(isPillStillAvailable(i))
+				hash^=Game._zobrist(Game.HASH_PILL,i);
+
+		for(int i=0;i<maze.numPowerPills;i++)
+			if(isPowerPillStillAvailable(i))
+				hash^=Game._zobrist(Game.HASH_POWER_PILL,i);
+
+		return hash;
+	}
+
+	/**
+	 * Checks if a node is a junction, as in Game.
+	 *
+	 * @param nodeIndex The node index
+	 * @return true, if it has more than two neighbours
+	 */
+	public boolean isJunction(int nodeIndex)
+	{
+		int base=nodeIndex*4,count=0;
+
+		for(int m=0;m<4;m++)
+			if(maze.neighbours[base+m]>=0)
+				count++;
+
+		return count>2;
+	}
+
+	/**
+	 * Whether a ghost is due a decision this tick, as in Game.doesGhostRequireAction().
+	 *
+	 * @param ghost The ordinal of the ghost
+	 * @return true, if the ghost's move will be used
+	 */
+	public boolean doesGhostRequireAction(int ghost)
+	{
+		//include neutral here for the unique case where the ghost just left the lair
+		return (isJunction(ghostNodeIndices[ghost]) || (ghostLastMovesMade[ghost]==NEUTRAL && ghostNodeIndices[ghost]==maze.initialGhostNodeIndex))
+				&& (edibleTimes[ghost]==0 || edibleTimes[ghost]%GHOST_SPEED_REDUCTION!=0);
+	}
+
+	/**
+	 * The move, not reversing the last one, to the neighbour nearest a target by path distance, the first on a tie,
+	 * as in Game.getApproximateNextMoveTowardsTarget() with DM.PATH.
+	 *
+	 * @param fromNodeIndex The node index from which to move
+	 * @param toNodeIndex The target node index
+	 * @param lastMoveMade The ordinal of the last move made
+	 * @return The ordinal of the move, or NEUTRAL if there is none
+	 */
+	public int getApproximateNextMoveTowardsTarget(int fromNodeIndex,int toNodeIndex,int lastMoveMade)
+	{
+		return _approximateNextMove(fromNodeIndex,toNodeIndex,lastMoveMade,true);
+	}
+
+	/**
+	 * The move, not reversing the last one, to the neighbour furthest from a target by path distance, the first on a tie,
+	 * as in Game.getApproximateNextMoveAwayFromTarget() with DM.PATH.
+	 *
+	 * @param fromNodeIndex The node index from which to move
+	 * @param toNodeIndex The target node index
+	 * @param lastMoveMade The ordinal of the last move made
+	 * @return The ordinal of the move, or NEUTRAL if there is none
+	 */
+	public int getApproximateNextMoveAwayFromTarget(int fromNodeIndex,int toNodeIndex,int lastMoveMade)
+	{
+		return _approximateNextMove(fromNodeIndex,toNodeIndex,lastMoveMade,false);
+	}
+
+	/**
+	 * _approximate next move, towards the target or away from it.
+	 */
+	private int _approximateNextMove(int fromNodeIndex,int toNodeIndex,int lastMoveMade,boolean towards)
+	{
+		int entry=fromNodeIndex*5+lastMoveMade;
+		int move=NEUTRAL;
+		int best=towards ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+
+		for(int i=0;i<maze.numGhostMoves[entry];i++)
+		{
+			int candidate=maze.ghostMoves[entry*4+i];
+			int distance=getShortestPathDistance(maze.neighbours[fromNodeIndex*4+candidate],toNodeIndex);
+
+			if(towards ? distance<best : distance>best)
+			{
+				best=distance;
+				move=candidate;
+			}
+		}
+
+		return move;
+	}
+
+	/**
+	 * The node Ms Pac-Man or a ghost would reach by a move, or -1 for a wall.
+	 *
+	 * @param nodeIndex The node to move from
+	 * @param move The ordinal of the move (not NEUTRAL)
+	 * @return The neighbouring node, or -1
+	 */
+	public int getNeighbour(int nodeIndex,int move)
+	{
+		return maze.neighbours[nodeIndex*4+move];
+	}
+
+	/**
+	 * Returns the PATH distance from any node to any other node, as in Game.
+	 *
+	 * @param fromNodeIndex the from node index
+	 * @param toNodeIndex the to node index
+	 * @return the shortest path distance
+	 */
+	public int getShortestPathDistance(int fromNodeIndex,int toNodeIndex)
+	{
+		return maze.shortestPathDistances.get(fromNodeIndex,toNodeIndex);
+	}
+}
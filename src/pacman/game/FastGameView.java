@@ -0,0 +1,438 @@
+package pacman.game;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+
+import pacman.game.Constants.DM;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.internal.Maze;
+
+/**
+ * A read-only Game view of a live FastGame, so that code written against Game, such as feature
+ * sets and controllers, can read a FastGame without converting it. The state is read from the
+ * FastGame as it is now; queries that only depend on the maze go to an ordinary game in the same
+ * maze. Anything that would change the game throws, as in ReadOnlyGame. A copy() is an ordinary
+ * mutable game rebuilt from getGameState(), as a replay would be.
+ *
+ * Every public method of Game is overridden here; a new one must be added here and to ReadOnlyGame.
+ */
+public class FastGameView extends Game
+{
+	private static final MOVE[] MOVES = MOVE.values();
+
+	private final FastGame game; // Viewed
+	private Game maze; // In the viewed game's current maze, for the maze queries
+
+	public FastGameView(FastGame game)
+	{
+		this.game = game;
+	}
+
+	/**
+	 * A game in the viewed game's current maze, made again when a new level changes the maze.
+	 */
+	private Game _maze()
+	{
+		if(maze==null || maze.getMazeIndex()!=game.getMazeIndex())
+			maze=new Game(0,game.getMazeIndex());
+
+		return maze;
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////  Reads  ///////////////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	public String getGameState()
+	{
+		return game.getGameState();
+	}
+
+	public Game copy()
+	{
+		Game copy = new Game(0, game.getMazeIndex());
+		copy.setGameState(game.getGameState());
+		return copy;
+	}
+
+	public void copyInto(Game target)
+	{
+		copy().copyInto(target);
+	}
+
+	public void writeState(ByteBuffer buffer)
+	{
+		copy().writeState(buffer);
+	}
+
+	public int getTimeOfLastGlobalReversal()
+	{
+		return game.getTimeOfLastGlobalReversal();
+	}
+
+	public boolean gameOver()
+	{
+		return game.gameOver();
+	}
+
+	public long getHash()
+	{
+		return game.getHash();
+	}
+
+	public Maze getCurrentMaze()
+	{
+		return _maze().getCurrentMaze();
+	}
+
+	public int getNodeXCood(int nodeIndex)
+	{
+		return _maze().getNodeXCood(nodeIndex);
+	}
+
+	public int getNodeYCood(int nodeIndex)
+	{
+		return _maze().getNodeYCood(nodeIndex);
+	}
+
+	public int getMazeIndex()
+	{
+		return game.getMazeIndex();
+	}
+
+	public int getCurrentLevel()
+	{
+		return game.getCurrentLevel();
+	}
+
+	public int getNumberOfNodes()
+	{
+		return _maze().getNumberOfNodes();
+	}
+
+	public int getGhostCurrentEdibleScore()
+	{
+		return game.getGhostCurrentEdibleScore();
+	}
+
+	public int getGhostInitialNodeIndex()
+	{
+		return _maze().getGhostInitialNodeIndex();
+	}
+
+	public boolean isPillStillAvailable(int pillIndex)
+	{
+		return game.isPillStillAvailable(pillIndex);
+	}
+
+	public boolean isPowerPillStillAvailable(int powerPillIndex)
+	{
+		return game.isPowerPillStillAvailable(powerPillIndex);
+	}
+
+	public int getPillIndex(int nodeIndex)
+	{
+		return _maze().getPillIndex(nodeIndex);
+	}
+
+	public int getPowerPillIndex(int nodeIndex)
+	{
+		return _maze().getPowerPillIndex(nodeIndex);
+	}
+
+	public int[] getJunctionIndices()
+	{
+		return _maze().getJunctionIndices();
+	}
+
+	public int[] getPillIndices()
+	{
+		return _maze().getPillIndices();
+	}
+
+	public int[] getPowerPillIndices()
+	{
+		return _maze().getPowerPillIndices();
+	}
+
+	public int getPacmanCurrentNodeIndex()
+	{
+		return game.getPacmanCurrentNodeIndex();
+	}
+
+	public MOVE getPacmanLastMoveMade()
+	{
+		return MOVES[game.getPacmanLastMoveMade()];
+	}
+
+	public int getPacmanNumberOfLivesRemaining()
+	{
+		return game.getPacmanNumberOfLivesRemaining();
+	}
+
+	public int getGhostCurrentNodeIndex(GHOST ghostType)
+	{
+		return game.getGhostCurrentNodeIndex(ghostType.ordinal());
+	}
+
+	public MOVE getGhostLastMoveMade(GHOST ghostType)
+	{
+		return MOVES[game.getGhostLastMoveMade(ghostType.ordinal())];
+	}
+
+	public int getGhostEdibleTime(GHOST ghostType)
+	{
+		return game.getGhostEdibleTime(ghostType.ordinal());
+	}
+
+	public boolean isGhostEdible(GHOST ghostType)
+	{
+		return game.getGhostEdibleTime(ghostType.ordinal()) > 0;
+	}
+
+	public int getScore()
+	{
+		return game.getScore();
+	}
+
+	public int getCurrentLevelTime()
+	{
+		return game.getCurrentLevelTime();
+	}
+
+	public int getTotalTime()
+	{
+		return game.getTotalTime();
+	}
+
+	public int getNumberOfPills()
+	{
+		return _maze().getNumberOfPills();
+	}
+
+	public int getNumberOfPowerPills()
+	{
+		return _maze().getNumberOfPowerPills();
+	}
+
+	public int getNumberOfActivePills()
+	{
+		return game.getNumberOfActivePills();
+	}
+
+	public int getNumberOfActivePowerPills()
+	{
+		return game.getNumberOfActivePowerPills();
+	}
+
+	public int getGhostLairTime(GHOST ghostType)
+	{
+		return game.getGhostLairTime(ghostType.ordinal());
+	}
+
+	public int[] getActivePillsIndices()
+	{
+		int[] pillIndices = getPillIndices();
+		int[] indices = new int[game.getNumberOfActivePills()];
+
+		int index = 0;
+		for (int i=0; i<pillIndices.length; i++)
+			if (game.isPillStillAvailable(i))
+				indices[index++] = pillIndices[i];
+
+		return indices;
+	}
+
+	public int[] getActivePowerPillsIndices()
+	{
+		int[] powerPillIndices = getPowerPillIndices();
+		int[] indices = new int[game.getNumberOfActivePowerPills()];
+
+		int index = 0;
+		for (int i=0; i<powerPillIndices.length; i++)
+			if (game.isPowerPillStillAvailable(i))
+				indices[index++] = powerPillIndices[i];
+
+		return indices;
+	}
+
+	public boolean doesGhostRequireAction(GHOST ghostType)
+	{
+		return game.doesGhostRequireAction(ghostType.ordinal());
+	}
+
+	public boolean isJunction(int nodeIndex)
+	{
+		return game.isJunction(nodeIndex);
+	}
+
+	public MOVE[] getPossibleMoves(int nodeIndex)
+	{
+		return _maze().getPossibleMoves(nodeIndex);
+	}
+
+	public MOVE[] getPossibleMoves(int nodeIndex, MOVE lastModeMade)
+	{
+		return _maze().getPossibleMoves(nodeIndex, lastModeMade);
+	}
+
+	public int[] getNeighbouringNodes(int nodeIndex)
+	{
+		return _maze().getNeighbouringNodes(nodeIndex);
+	}
+
+	public int[] getNeighbouringNodes(int nodeIndex, MOVE lastModeMade)
+	{
+		return _maze().getNeighbouringNodes(nodeIndex, lastModeMade);
+	}
+
+	public int getNeighbour(int nodeIndex, MOVE moveToBeMade)
+	{
+		return (moveToBeMade == MOVE.NEUTRAL) ? -1 : game.getNeighbour(nodeIndex, moveToBeMade.ordinal());
+	}
+
+	public MOVE getMoveToMakeToReachDirectNeighbour(int currentNodeIndex, int neighbourNodeIndex)
+	{
+		return _maze().getMoveToMakeToReachDirectNeighbour(currentNodeIndex, neighbourNodeIndex);
+	}
+
+	public int getShortestPathDistance(int fromNodeIndex, int toNodeIndex)
+	{
+		return game.getShortestPathDistance(fromNodeIndex, toNodeIndex);
+	}
+
+	public double getEuclideanDistance(int fromNodeIndex, int toNodeIndex)
+	{
+		return _maze().getEuclideanDistance(fromNodeIndex, toNodeIndex);
+	}
+
+	public int getManhattanDistance(int fromNodeIndex, int toNodeIndex)
+	{
+		return _maze().getManhattanDistance(fromNodeIndex, toNodeIndex);
+	}
+
+	public double getDistance(int fromNodeIndex, int toNodeIndex, DM distanceMeasure)
+	{
+		return _maze().getDistance(fromNodeIndex, toNodeIndex, distanceMeasure);
+	}
+
+	public double getDistance(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return _maze().getDistance(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public int getClosestNodeIndexFromNodeIndex(int fromNodeIndex, int[] targetNodeIndices, DM distanceMeasure)
+	{
+		return _maze().getClosestNodeIndexFromNodeIndex(fromNodeIndex, targetNodeIndices, distanceMeasure);
+	}
+
+	public int getFarthestNodeIndexFromNodeIndex(int fromNodeIndex, int[] targetNodeIndices, DM distanceMeasure)
+	{
+		return _maze().getFarthestNodeIndexFromNodeIndex(fromNodeIndex, targetNodeIndices, distanceMeasure);
+	}
+
+	public MOVE getNextMoveTowardsTarget(int fromNodeIndex, int toNodeIndex, DM distanceMeasure)
+	{
+		return _maze().getNextMoveTowardsTarget(fromNodeIndex, toNodeIndex, distanceMeasure);
+	}
+
+	public MOVE getNextMoveAwayFromTarget(int fromNodeIndex, int toNodeIndex, DM distanceMeasure)
+	{
+		return _maze().getNextMoveAwayFromTarget(fromNodeIndex, toNodeIndex, distanceMeasure);
+	}
+
+	public MOVE getApproximateNextMoveTowardsTarget(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return _maze().getApproximateNextMoveTowardsTarget(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public MOVE getApproximateNextMoveAwayFromTarget(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return _maze().getApproximateNextMoveAwayFromTarget(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public MOVE getNextMoveTowardsTarget(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return _maze().getNextMoveTowardsTarget(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public MOVE getNextMoveAwayFromTarget(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return _maze().getNextMoveAwayFromTarget(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public int[] getAStarPath(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade)
+	{
+		return _maze().getAStarPath(fromNodeIndex, toNodeIndex, lastMoveMade);
+	}
+
+	public int[] getShortestPath(int fromNodeIndex, int toNodeIndex)
+	{
+		return _maze().getShortestPath(fromNodeIndex, toNodeIndex);
+	}
+
+	public int[] getApproximateShortestPath(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade)
+	{
+		return _maze().getApproximateShortestPath(fromNodeIndex, toNodeIndex, lastMoveMade);
+	}
+
+	public int getApproximateShortestPathDistance(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade)
+	{
+		return _maze().getApproximateShortestPathDistance(fromNodeIndex, toNodeIndex, lastMoveMade);
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////  Changes  /////////////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	public void setGameState(String gameState)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void readState(ByteBuffer buffer)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void advanceGame(MOVE pacManMove, EnumMap<GHOST,MOVE> ghostMoves)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void updatePacMan(MOVE pacManMove)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void updateGhosts(EnumMap<GHOST,MOVE> ghostMoves)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void updateGame()
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void updateGame(boolean feast, boolean updateLairTimes, boolean updateExtraLife, boolean updateTotalTime, boolean updateLevelTime)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void makeMove(MOVE pacManMove, EnumMap<GHOST,MOVE> ghostMoves, Undo undo)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void unmakeMove(Undo undo)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void setGlobalReversals(boolean value)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+}
@@ -1,11 +1,13 @@
 package pacman.game;
 
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 import java.util.EnumMap;
-import java.util.Random;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import pacman.game.Constants.DM;
 import pacman.game.Constants.MOVE;
+import pacman.game.internal.GameRandom;
 import pacman.game.internal.Ghost;
 import pacman.game.internal.Maze;
 import pacman.game.internal.Node;
@@ -16,10 +18,10 @@ import static pacman.game.Constants.*;
 
 /**
  * The implementation of Ms Pac-Man. This class contains the game engine and all methods required to
- * query the state of the game. First, the mazes are loaded once only as they are immutable. The game
- * then proceeds to initialise all variables using default values. The game class also provides numerous
- * methods to extract the game state as a string (used for replays and for communication via pipes during
- * the competition) and to create copies. Care has been taken to implement the game efficiently to ensure
+ * query the state of the game. First, the maze is loaded, once only and when a game first uses it, as the
+ * mazes are immutable. The game then proceeds to initialise all variables using default values. The game
+ * class also provides numerous methods to extract the game state as a string (used for replays and for
+ * communication via pipes during the competition) and to create copies. Care has been taken to implement the game efficiently to ensure
  * that copies can be created quickly.
  * 
  * The game has a central update method called advanceGame which takes a move for Ms Pac-Man and up to
@@ -34,7 +36,7 @@ import static pacman.game.Constants.*;
  * a low error rate. The latter takes a bit longer but is absolutely accurate. We use the pre-computed shortest
  * path distances as admissable heuristic so it is very efficient.
  */
-public final class Game
+public class Game
 {
 	//pills stored as bitsets for efficient copying
 	private BitSet pills, powerPills;
@@ -45,31 +47,104 @@ public final class Game
 	//the data relating to pacman and the ghosts are stored in respective data structures for clarity
 	private PacMan pacman;
 	private EnumMap<GHOST, Ghost> ghosts;
+	
+	private static final GHOST[] GHOST_TYPES=GHOST.values(); //values() clones on every call
+	private static final MOVE[] MOVES=MOVE.values();
 
-	//mazes are only loaded once since they don't change over time
-	private static Maze[] mazes=new Maze[NUM_MAZES];
+	//each maze and its paths cache are loaded the first time a game needs them; they never change after
+	private static final AtomicReferenceArray<Maze> mazes=new AtomicReferenceArray<Maze>(NUM_MAZES);
+	private static final AtomicReferenceArray<PathsCache> caches=new AtomicReferenceArray<PathsCache>(NUM_MAZES);
+	private static final Object[] mazeLocks=new Object[NUM_MAZES], cacheLocks=new Object[NUM_MAZES];
+	
+	static
+	{
+		for(int i=0;i<NUM_MAZES;i++)
+		{
+			mazeLocks[i]=new Object();
+			cacheLocks[i]=new Object();
+		}
+	}
 	
 	private Maze currentMaze;
 	
-	static 
+	/**
+	 * Returns one of the mazes, loading it the first time. Loads of different mazes do not wait for
+	 * each other.
+	 *
+	 * @param index The index of the maze
+	 * @return the maze
+	 */
+	static Maze getMaze(int index)
 	{
-		for(int i=0;i<mazes.length;i++)
-			mazes[i]=new Maze(i);
+		Maze maze=mazes.get(index);
+		
+		if(maze==null)
+		{
+			synchronized(mazeLocks[index])
+			{
+				maze=mazes.get(index);
+				if(maze==null)
+					mazes.set(index,maze=new Maze(index));
+			}
+		}
+		
+		return maze;
 	}
 	
-	public static PathsCache[] caches=new PathsCache[NUM_MAZES];
+	/**
+	 * Replaces one of the mazes, for experiments on other mazes such as those made by MazeGenerator. Games
+	 * made from then on play it. Replace a maze before making any game in it, since the paths cache goes with
+	 * the index: a game still playing the old maze would find paths in the new one.
+	 *
+	 * @param index The index of the maze
+	 * @param maze The maze to play instead, or null to go back to the built-in one
+	 */
+	public static void setMaze(int index,Maze maze)
+	{
+		//in the order the loaders take them: a paths cache loads its maze
+		synchronized(cacheLocks[index])
+		{
+			synchronized(mazeLocks[index])
+			{
+				mazes.set(index,maze);
+				caches.set(index,null);
+			}
+		}
+	}
 	
-	static 
+	/**
+	 * Returns the paths cache of one of the mazes, building it the first time. Building it plays a game
+	 * in that maze, which only needs the maze itself.
+	 *
+	 * @param index The index of the maze
+	 * @return the paths cache
+	 */
+	private static PathsCache _getPathsCache(int index)
 	{
-		for(int i=0;i<mazes.length;i++)
+		PathsCache cache=caches.get(index);
+		
+		if(cache==null)
 		{
-			caches[i]=new PathsCache(i);
+			synchronized(cacheLocks[index])
+			{
+				cache=caches.get(index);
+				if(cache==null)
+					caches.set(index,cache=new PathsCache(index));
+			}
 		}
+		
+		return cache;
 	}
 	
-	private Random rnd;
+	private GameRandom rnd;
 	private long seed;	
 	
+	//zobrist hash of the positions, last moves and edible flags, and of the pills left
+	private long hash;
+	static final int HASH_MAZE=0, HASH_PACMAN_NODE=1, HASH_PACMAN_MOVE=2, HASH_GHOST_NODE=3, 
+			HASH_GHOST_MOVE=HASH_GHOST_NODE+NUM_GHOSTS, HASH_GHOST_EDIBLE=HASH_GHOST_MOVE+NUM_GHOSTS, 
+			HASH_PILL=HASH_GHOST_EDIBLE+NUM_GHOSTS, HASH_POWER_PILL=HASH_PILL+1;
+	
 	/////////////////////////////////////////////////////////////////////////////
 	///////////////////  Constructors and initialisers  /////////////////////////
 	/////////////////////////////////////////////////////////////////////////////
@@ -85,7 +160,7 @@ public final class Game
 	public Game(long seed)
 	{		
 		this.seed=seed;
-		rnd=new Random(seed);
+		rnd=new GameRandom(seed);
 		
 		_init(0);
 	}
@@ -99,7 +174,7 @@ public final class Game
 	public Game(long seed,int initialMaze)
 	{						
 		this.seed=seed;
-		rnd=new Random(seed);
+		rnd=new GameRandom(seed);
 		
 		_init(initialMaze);		
 	}
@@ -123,10 +198,11 @@ public final class Game
 		enableGlobalReversals=true;
 		timeOfLastGlobalReversal=-1;
 		
-		_setPills(currentMaze=mazes[mazeIndex]);
+		_setPills(currentMaze=getMaze(mazeIndex));
 		_initGhosts();
 		
 		pacman=new PacMan(currentMaze.initialPacManNodeIndex,MOVE.LEFT,NUM_LIVES,false);		
+		_computeHash();
 	}
 	
 	/**
@@ -136,7 +212,7 @@ public final class Game
 	{
 		mazeIndex=++mazeIndex%NUM_MAZES;
 		levelCount++;
-		currentMaze=mazes[mazeIndex];
+		currentMaze=getMaze(mazeIndex);
 		
 		currentLevelTime=0;
 		ghostEatMultiplier=1;
@@ -156,6 +232,7 @@ public final class Game
 		
 		pacman.currentNodeIndex=currentMaze.initialPacManNodeIndex;
 		pacman.lastMoveMade=MOVE.LEFT;
+		_computeHash();
 	}
 	
 	/**
@@ -247,7 +324,7 @@ public final class Game
 			ghosts.put(ghostType,new Ghost(Integer.parseInt(values[index++]),Integer.parseInt(values[index++]),
 					Integer.parseInt(values[index++]),MOVE.valueOf(values[index++])));
 			
-		_setPills(currentMaze=mazes[mazeIndex]);
+		_setPills(currentMaze=getMaze(mazeIndex));
 		
 		for(int i=0;i<values[index].length();i++)
 			if(values[index].charAt(i)=='1')
@@ -266,6 +343,148 @@ public final class Game
 		index++;
 		
 		timeOfLastGlobalReversal=Integer.parseInt(values[index]);
+		_computeHash();
+	}
+	
+	/**
+	 * Writes the game state in binary: the same variables as getGameState(), as varints, with
+	 * the pills as raw longs and each character's position and last move packed into one int.
+	 * The pill counts come from the maze, so states need no length or separators.
+	 *
+	 * @param buffer The buffer to write to, which must have room for the state
+	 */
+	public void writeState(ByteBuffer buffer)
+	{
+		_putVarint(buffer,mazeIndex);
+		_putVarint(buffer,totalTime);
+		_putVarint(buffer,score);
+		_putVarint(buffer,currentLevelTime);
+		_putVarint(buffer,levelCount);
+		_putVarint(buffer,timeOfLastGlobalReversal+1);	//-1 before the first one
+		
+		_putVarint(buffer,(pacman.currentNodeIndex<<3)|pacman.lastMoveMade.ordinal());
+		_putVarint(buffer,(pacman.numberOfLivesRemaining<<1)|(pacman.hasReceivedExtraLife ? 1 : 0));
+		
+		for(int i=0;i<GHOST_TYPES.length;i++)
+		{
+			Ghost ghost=ghosts.get(GHOST_TYPES[i]);
+			_putVarint(buffer,(ghost.currentNodeIndex<<3)|ghost.lastMoveMade.ordinal());
+			_putVarint(buffer,ghost.edibleTime);
+			_putVarint(buffer,ghost.lairTime);
+		}
+		
+		_putBits(buffer,pills,currentMaze.pillIndices.length);
+		_putBits(buffer,powerPills,currentMaze.powerPillIndices.length);
+	}
+	
+	/**
+	 * Reads a game state written by writeState(): the binary inverse, equivalent to setGameState().
+	 * Once this game has a state, reading another one into it allocates nothing.
+	 *
+	 * @param buffer The buffer to read from, positioned at the start of a state
+	 */
+	public void readState(ByteBuffer buffer)
+	{
+		mazeIndex=_getVarint(buffer);
+		totalTime=_getVarint(buffer);
+		score=_getVarint(buffer);
+		currentLevelTime=_getVarint(buffer);
+		levelCount=_getVarint(buffer);
+		timeOfLastGlobalReversal=_getVarint(buffer)-1;
+		currentMaze=getMaze(mazeIndex);
+		
+		int position=_getVarint(buffer);
+		int lives=_getVarint(buffer);
+		
+		if(pacman==null)
+			pacman=new PacMan(0,MOVE.NEUTRAL,0,false);
+		pacman.currentNodeIndex=position>>>3;
+		pacman.lastMoveMade=MOVES[position&7];
+		pacman.numberOfLivesRemaining=lives>>>1;
+		pacman.hasReceivedExtraLife=(lives&1)!=0;
+		
+		if(ghosts==null)
+			ghosts=new EnumMap<GHOST,Ghost>(GHOST.class);
+		
+		for(int i=0;i<GHOST_TYPES.length;i++)
+		{
+			Ghost ghost=ghosts.get(GHOST_TYPES[i]);
+			if(ghost==null)
+				ghosts.put(GHOST_TYPES[i],ghost=new Ghost(0,0,0,MOVE.NEUTRAL));
+			
+			position=_getVarint(buffer);
+			ghost.currentNodeIndex=position>>>3;
+			ghost.lastMoveMade=MOVES[position&7];
+			ghost.edibleTime=_getVarint(buffer);
+			ghost.lairTime=_getVarint(buffer);
+		}
+		
+		if(pills==null)
+		{
+			pills=new BitSet(currentMaze.pillIndices.length);
+			powerPills=new BitSet(currentMaze.powerPillIndices.length);
+		}
+		_getBits(buffer,pills,currentMaze.pillIndices.length);
+		_getBits(buffer,powerPills,currentMaze.powerPillIndices.length);
+		_computeHash();
+	}
+	
+	/**
+	 * Writes a non-negative int in 7-bit groups, low first.
+	 */
+	private static void _putVarint(ByteBuffer buffer,int value)
+	{
+		while((value&~0x7F)!=0)
+		{
+			buffer.put((byte)((value&0x7F)|0x80));
+			value>>>=7;
+		}
+		buffer.put((byte)value);
+	}
+	
+	/**
+	 * Reads an int written by _putVarint().
+	 */
+	private static int _getVarint(ByteBuffer buffer)
+	{
+		int value=0;
+		
+		for(int shift=0;;shift+=7)
+		{
+			byte b=buffer.get();
+			value|=(b&0x7F)<<shift;
+			
+			if(b>=0)
+				return value;
+		}
+	}
+	
+	/**
+	 * Writes the first length bits of a bit set as whole longs.
+	 */
+	private static void _putBits(ByteBuffer buffer,BitSet bits,int length)
+	{
+		for(int from=0;from<length;from+=64)
+		{
+			long word=0;
+			
+			for(int i=bits.nextSetBit(from);i>=0 && i<from+64;i=bits.nextSetBit(i+1))
+				word|=1L<<(i-from);
+			
+			buffer.putLong(word);
+		}
+	}
+	
+	/**
+	 * Reads the first length bits of a bit set written by _putBits(), clearing the rest.
+	 */
+	private static void _getBits(ByteBuffer buffer,BitSet bits,int length)
+	{
+		bits.clear();
+		
+		for(int from=0;from<length;from+=64)
+			for(long word=buffer.getLong();word!=0;word&=word-1)
+				bits.set(from+Long.numberOfTrailingZeros(word));
 	}
 	
 	/**
@@ -279,7 +498,8 @@ public final class Game
 		Game copy=new Game();
 			
 		copy.seed=seed;
-		copy.rnd=new Random(seed);
+		copy.rnd=new GameRandom(seed);
+		copy.hash=hash;
 		copy.currentMaze=currentMaze;
 		
 		copy.pills=(BitSet)pills.clone();
@@ -303,6 +523,76 @@ public final class Game
 			
 		return copy;	
 	}
+	
+	/**
+	 * Overwrites another game with an exact copy of this one, reusing its objects. Once the
+	 * target has been filled once, this allocates nothing, so searches can recycle their
+	 * states (see GamePool) instead of calling copy() for each one.
+	 *
+	 * @param target The game to overwrite
+	 */
+	public void copyInto(Game target)
+	{
+		if(target instanceof ReadOnlyGame || target instanceof FastGameView)
+			throw new UnsupportedOperationException("read-only view");
+		
+		target.seed=seed;
+		if(target.rnd==null)
+			target.rnd=new GameRandom(seed);
+		else
+			target.rnd.setSeed(seed);
+		target.currentMaze=currentMaze;
+		target.hash=hash;
+		
+		if(target.pills==null)
+		{
+			target.pills=new BitSet(pills.size());
+			target.powerPills=new BitSet(powerPills.size());
+		}
+		target.pills.clear();
+		target.pills.or(pills);
+		target.powerPills.clear();
+		target.powerPills.or(powerPills);
+		
+		target.mazeIndex=mazeIndex;
+		target.levelCount=levelCount;
+		target.currentLevelTime=currentLevelTime;		
+		target.totalTime=totalTime;
+		target.score=score;
+		target.ghostEatMultiplier=ghostEatMultiplier;
+		target.gameOver=gameOver;
+		target.enableGlobalReversals=enableGlobalReversals;
+		target.timeOfLastGlobalReversal=timeOfLastGlobalReversal;
+		
+		if(target.pacman==null)
+			target.pacman=pacman.copy();
+		else
+		{
+			target.pacman.currentNodeIndex=pacman.currentNodeIndex;
+			target.pacman.lastMoveMade=pacman.lastMoveMade;
+			target.pacman.numberOfLivesRemaining=pacman.numberOfLivesRemaining;
+			target.pacman.hasReceivedExtraLife=pacman.hasReceivedExtraLife;
+		}
+		
+		if(target.ghosts==null)
+			target.ghosts=new EnumMap<GHOST,Ghost>(GHOST.class);
+		
+		for(int i=0;i<GHOST_TYPES.length;i++)
+		{
+			Ghost ghost=ghosts.get(GHOST_TYPES[i]);
+			Ghost targetGhost=target.ghosts.get(GHOST_TYPES[i]);
+			
+			if(targetGhost==null)
+				target.ghosts.put(GHOST_TYPES[i],ghost.copy());
+			else
+			{
+				targetGhost.currentNodeIndex=ghost.currentNodeIndex;
+				targetGhost.edibleTime=ghost.edibleTime;
+				targetGhost.lairTime=ghost.lairTime;
+				targetGhost.lastMoveMade=ghost.lastMoveMade;
+			}
+		}
+	}
 
 	/////////////////////////////////////////////////////////////////////////////
 	///////////////////////////  Game-engine   //////////////////////////////////
@@ -384,15 +674,59 @@ public final class Game
 		_checkLevelState();							//check if level/game is over
 	}
 	
+	/**
+	 * Same as advanceGame() but records what the tick changes, so that unmakeMove() can revert
+	 * it exactly. This lets a tree search or a rollout run on one game instead of a copy per
+	 * node. Records can be reused, and moves must be unmade in the reverse order they were made.
+	 *
+	 * @param pacManMove The move supplied by the Ms Pac-Man controller
+	 * @param ghostMoves The moves supplied by the ghosts controller
+	 * @param undo The record to fill
+	 */
+	public void makeMove(MOVE pacManMove,EnumMap<GHOST,MOVE> ghostMoves,Undo undo)
+	{
+		undo.save(this);
+
+		_updatePacMan(pacManMove);
+
+		//the only pills a tick can eat are those where pac-man lands
+		Node node=currentMaze.graph[pacman.currentNodeIndex];
+		undo.pillIndex=(node.pillIndex>=0 && pills.get(node.pillIndex)) ? node.pillIndex : -1;
+		undo.powerPillIndex=(node.powerPillIndex>=0 && powerPills.get(node.powerPillIndex)) ? node.powerPillIndex : -1;
+
+		_eatPill();
+		_eatPowerPill();
+		updateGhosts(ghostMoves);
+		updateGame();
+	}
+
+	/**
+	 * Reverts the tick recorded by makeMove(), including the state of the random number generator.
+	 *
+	 * @param undo The record of the last move made
+	 */
+	public void unmakeMove(Undo undo)
+	{
+		undo.restore(this);
+	}
+
 	/**
 	 * _update lair times.
 	 */
 	private void _updateLairTimes()
 	{
-		for(Ghost ghost : ghosts.values())
+		for(int i=0;i<GHOST_TYPES.length;i++)
+		{
+			Ghost ghost=ghosts.get(GHOST_TYPES[i]);
+			
 			if(ghost.lairTime>0)
 				if(--ghost.lairTime==0)
+				{
+					hash^=_ghostHash(i,ghost);
 					ghost.currentNodeIndex=currentMaze.initialGhostNodeIndex;
+					hash^=_ghostHash(i,ghost);
+				}
+		}
 	}
 	
 	/**
@@ -414,9 +748,11 @@ public final class Game
 	 */
 	private void _updatePacMan(MOVE move)
 	{
+		hash^=_pacManHash();
 		pacman.lastMoveMade=_correctPacManDir(move);		
 		pacman.currentNodeIndex=pacman.lastMoveMade == MOVE.NEUTRAL ? pacman.currentNodeIndex : 
 			currentMaze.graph[pacman.currentNodeIndex].neighbourhood.get(pacman.lastMoveMade);
+		hash^=_pacManHash();
 	}
 
 	/**
@@ -466,9 +802,12 @@ public final class Game
 		for(Entry<GHOST,MOVE> entry : moves.entrySet())
 		{
 			Ghost ghost=ghosts.get(entry.getKey());
+			int i=entry.getKey().ordinal();
 
 			if(ghost.lairTime==0)
 			{
+				hash^=_ghostHash(i,ghost);
+				
 				//check for neutral in case ghost just left the lair
 				if(globalReverse && ghost.lastMoveMade!=MOVE.NEUTRAL)
 				{
@@ -482,6 +821,8 @@ public final class Game
 					ghost.currentNodeIndex=currentMaze.graph[ghost.currentNodeIndex].neighbourhood.get(ghost.lastMoveMade);
 //					System.out.println(ghost.currentNodeIndex);
 				}
+				
+				hash^=_ghostHash(i,ghost);
 			}
 		}
 	}
@@ -526,6 +867,7 @@ public final class Game
 
 			score+=PILL;
 			pills.clear(pillIndex);
+			hash^=_zobrist(HASH_PILL,pillIndex);
 		}
 	}
 	
@@ -543,14 +885,22 @@ public final class Game
 			score+=POWER_PILL;
 			ghostEatMultiplier=1;
 			powerPills.clear(powerPillIndex);
+			hash^=_zobrist(HASH_POWER_PILL,powerPillIndex);
 			
 			int newEdibleTime=(int)(EDIBLE_TIME*(Math.pow(EDIBLE_TIME_REDUCTION,levelCount)));
 			
-			for(Ghost ghost : ghosts.values())
+			for(int i=0;i<GHOST_TYPES.length;i++)
+			{
+				Ghost ghost=ghosts.get(GHOST_TYPES[i]);
+				hash^=_ghostHash(i,ghost);
+				
 				if(ghost.lairTime==0)
 					ghost.edibleTime=newEdibleTime;
 				else
 					ghost.edibleTime=0;
+				
+				hash^=_ghostHash(i,ghost);
+			}
 			
 			globalReverse=true;
 		}
@@ -566,8 +916,9 @@ public final class Game
 	 */
 	private void _feast()
 	{		
-		for(Ghost ghost : ghosts.values())
+		for(int i=0;i<GHOST_TYPES.length;i++)
 		{
+			Ghost ghost=ghosts.get(GHOST_TYPES[i]);
 			int distance=getShortestPathDistance(pacman.currentNodeIndex, ghost.currentNodeIndex);
 			
 			if(distance<=EAT_DISTANCE && distance!=-1)
@@ -576,10 +927,12 @@ public final class Game
 				{
 					score+=GHOST_EAT_SCORE*ghostEatMultiplier;
 					//ghostEatMultiplier*=2;
+					hash^=_ghostHash(i,ghost);
 					ghost.edibleTime=0;					
 					ghost.lairTime=(int)(COMMON_LAIR_TIME*(Math.pow(LAIR_REDUCTION,levelCount)));					
 					ghost.currentNodeIndex=currentMaze.lairNodeIndex;
 					ghost.lastMoveMade=MOVE.NEUTRAL;
+					hash^=_ghostHash(i,ghost);
 				}
 				else													//ghost eats pac-man
 				{
@@ -593,9 +946,14 @@ public final class Game
 			}
 		}
 		
-		for(Ghost ghost : ghosts.values())
+		for(int i=0;i<GHOST_TYPES.length;i++)
+		{
+			Ghost ghost=ghosts.get(GHOST_TYPES[i]);
+			
 			if(ghost.edibleTime>0)
-				ghost.edibleTime--;
+				if(--ghost.edibleTime==0)
+					hash^=_zobrist(HASH_GHOST_EDIBLE+i,0);
+		}
 	}
 	
 	/**
@@ -616,6 +974,58 @@ public final class Game
 				_newLevelReset();
 		}
 	}
+	
+	/**
+	 * Recomputes the hash from scratch, after the game has been reset or set.
+	 */
+	private void _computeHash()
+	{
+		hash=_zobrist(HASH_MAZE,mazeIndex)^_pacManHash();
+		
+		for(int i=0;i<GHOST_TYPES.length;i++)
+			hash^=_ghostHash(i,ghosts.get(GHOST_TYPES[i]));
+		
+		for(int i=pills.nextSetBit(0);i>=0;i=pills.nextSetBit(i+1))
+			hash^=_zobrist(HASH_PILL,i);
+		
+		for(int i=powerPills.nextSetBit(0);i>=0;i=powerPills.nextSetBit(i+1))
+			hash^=_zobrist(HASH_POWER_PILL,i);
+	}
+	
+	/**
+	 * The part of the hash for Ms Pac-Man.
+	 */
+	private long _pacManHash()
+	{
+		return _zobrist(HASH_PACMAN_NODE,pacman.currentNodeIndex)^_zobrist(HASH_PACMAN_MOVE,pacman.lastMoveMade.ordinal());
+	}
+	
+	/**
+	 * The part of the hash for a ghost.
+	 *
+	 * @param i The ghost's ordinal
+	 * @param ghost The ghost
+	 */
+	private static long _ghostHash(int i,Ghost ghost)
+	{
+		long hash=_zobrist(HASH_GHOST_NODE+i,ghost.currentNodeIndex)^_zobrist(HASH_GHOST_MOVE+i,ghost.lastMoveMade.ordinal());
+		return ghost.edibleTime>0 ? hash^_zobrist(HASH_GHOST_EDIBLE+i,0) : hash;
+	}
+	
+	/**
+	 * The random key of one feature value. Keys are a mix of the feature and the value
+	 * (the SplitMix64 finalizer) rather than a table, so they do not depend on the size of the mazes.
+	 *
+	 * @param feature One of the HASH_ constants
+	 * @param value The feature's value, such as a node index
+	 */
+	static long _zobrist(int feature,int value)
+	{
+		long z=(((long)feature<<32)|(value&0xFFFFFFFFL))*0x9E3779B97F4A7C15L;
+		z=(z^(z>>>30))*0xBF58476D1CE4E5B9L;
+		z=(z^(z>>>27))*0x94D049BB133111EBL;
+		return z^(z>>>31);
+	}
 
 	/////////////////////////////////////////////////////////////////////////////
 	///////////////////  Query Methods (return only)  ///////////////////////////
@@ -642,6 +1052,19 @@ public final class Game
 		return gameOver;
 	}
 	
+	/**
+	 * Returns a 64-bit hash of the maze, the characters' positions, last moves and edible flags,
+	 * and the pills left. It is kept up to date on every change, so it costs nothing to read, and
+	 * equal positions have equal hashes whatever the score or time. Timers other than the edible
+	 * flags are not included.
+	 *
+	 * @return the hash of the current position
+	 */
+	public long getHash()
+	{
+		return hash;
+	}
+	
 	/**
 	 * Returns the current maze of the game.
 	 * 
@@ -1124,12 +1547,7 @@ public final class Game
 	 */
 	public int getShortestPathDistance(int fromNodeIndex,int toNodeIndex)
 	{
-		if(fromNodeIndex==toNodeIndex)
-			return 0;		
-		else if(fromNodeIndex<toNodeIndex)
-			return currentMaze.shortestPathDistances[((toNodeIndex*(toNodeIndex+1))/2)+fromNodeIndex];
-		else
-			return currentMaze.shortestPathDistances[((fromNodeIndex*(fromNodeIndex+1))/2)+toNodeIndex];
+		return currentMaze.shortestPathDistances.get(fromNodeIndex,toNodeIndex);
 	}
 	
 	/**
@@ -1449,7 +1867,7 @@ public final class Game
 	 */
 	public int[] getShortestPath(int fromNodeIndex,int toNodeIndex)
 	{
-		return caches[mazeIndex].getPathFromA2B(fromNodeIndex,toNodeIndex);
+		return _getPathsCache(mazeIndex).getPathFromA2B(fromNodeIndex,toNodeIndex);
 	}
 	
 	/**
@@ -1467,7 +1885,7 @@ public final class Game
 		if(currentMaze.graph[fromNodeIndex].neighbourhood.size()==0)//lair
 			return new int[0];
 
-		return caches[mazeIndex].getPathFromA2B(fromNodeIndex,toNodeIndex,lastMoveMade);
+		return _getPathsCache(mazeIndex).getPathFromA2B(fromNodeIndex,toNodeIndex,lastMoveMade);
 	}
 	
 	/**
@@ -1484,6 +1902,109 @@ public final class Game
 		if(currentMaze.graph[fromNodeIndex].neighbourhood.size()==0)//lair
 			return 0;
 
-		return caches[mazeIndex].getPathDistanceFromA2B(fromNodeIndex,toNodeIndex,lastMoveMade);
+		return _getPathsCache(mazeIndex).getPathDistanceFromA2B(fromNodeIndex,toNodeIndex,lastMoveMade);
+	}
+	
+	/**
+	 * A record of one tick, filled by makeMove() and used by unmakeMove(). It holds the few
+	 * values a tick may change rather than a copy of the game, and allocates nothing once made.
+	 */
+	public static final class Undo
+	{
+		private Maze currentMaze;
+		private BitSet pills, powerPills;		//replaced when a level ends, changed in place otherwise
+		private int pillIndex, powerPillIndex;	//eaten during the tick, or -1
+		private int mazeIndex, levelCount, currentLevelTime, totalTime, score, ghostEatMultiplier, timeOfLastGlobalReversal;
+		private boolean gameOver, globalReverse;
+		private long randomState, hash;
+		
+		private int pacManNodeIndex, numberOfLivesRemaining;
+		private MOVE pacManLastMoveMade;
+		private boolean hasReceivedExtraLife;
+		
+		private EnumMap<GHOST,Ghost> ghosts;	//replaced when pac-man dies, changed in place otherwise
+		private final int[] ghostNodeIndices=new int[NUM_GHOSTS], edibleTimes=new int[NUM_GHOSTS], lairTimes=new int[NUM_GHOSTS];
+		private final MOVE[] ghostLastMovesMade=new MOVE[NUM_GHOSTS];
+		
+		/**
+		 * Remembers the state of the game before a tick.
+		 *
+		 * @param game The game about to move
+		 */
+		private void save(Game game)
+		{
+			currentMaze=game.currentMaze;
+			pills=game.pills;
+			powerPills=game.powerPills;
+			mazeIndex=game.mazeIndex;
+			levelCount=game.levelCount;
+			currentLevelTime=game.currentLevelTime;
+			totalTime=game.totalTime;
+			score=game.score;
+			ghostEatMultiplier=game.ghostEatMultiplier;
+			timeOfLastGlobalReversal=game.timeOfLastGlobalReversal;
+			gameOver=game.gameOver;
+			globalReverse=game.globalReverse;
+			randomState=game.rnd.getState();
+			hash=game.hash;
+			
+			pacManNodeIndex=game.pacman.currentNodeIndex;
+			pacManLastMoveMade=game.pacman.lastMoveMade;
+			numberOfLivesRemaining=game.pacman.numberOfLivesRemaining;
+			hasReceivedExtraLife=game.pacman.hasReceivedExtraLife;
+			
+			ghosts=game.ghosts;
+			for(int i=0;i<GHOST_TYPES.length;i++)
+			{
+				Ghost ghost=ghosts.get(GHOST_TYPES[i]);
+				ghostNodeIndices[i]=ghost.currentNodeIndex;
+				edibleTimes[i]=ghost.edibleTime;
+				lairTimes[i]=ghost.lairTime;
+				ghostLastMovesMade[i]=ghost.lastMoveMade;
+			}
+		}
+		
+		/**
+		 * Puts the game back as it was before the tick.
+		 *
+		 * @param game The game that moved
+		 */
+		private void restore(Game game)
+		{
+			game.currentMaze=currentMaze;
+			game.pills=pills;
+			game.powerPills=powerPills;
+			if(pillIndex>=0)
+				pills.set(pillIndex);
+			if(powerPillIndex>=0)
+				powerPills.set(powerPillIndex);
+			
+			game.mazeIndex=mazeIndex;
+			game.levelCount=levelCount;
+			game.currentLevelTime=currentLevelTime;
+			game.totalTime=totalTime;
+			game.score=score;
+			game.ghostEatMultiplier=ghostEatMultiplier;
+			game.timeOfLastGlobalReversal=timeOfLastGlobalReversal;
+			game.gameOver=gameOver;
+			game.globalReverse=globalReverse;
+			game.rnd.setState(randomState);
+			game.hash=hash;
+			
+			game.pacman.currentNodeIndex=pacManNodeIndex;
+			game.pacman.lastMoveMade=pacManLastMoveMade;
+			game.pacman.numberOfLivesRemaining=numberOfLivesRemaining;
+			game.pacman.hasReceivedExtraLife=hasReceivedExtraLife;
+			
+			game.ghosts=ghosts;
+			for(int i=0;i<GHOST_TYPES.length;i++)
+			{
+				Ghost ghost=ghosts.get(GHOST_TYPES[i]);
+				ghost.currentNodeIndex=ghostNodeIndices[i];
+				ghost.edibleTime=edibleTimes[i];
+				ghost.lairTime=lairTimes[i];
+				ghost.lastMoveMade=ghostLastMovesMade[i];
+			}
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package pacman.game;
+
+/**
+ * Recycles game states for forward searches. A search takes a copy with acquire(), and
+ * hands it back with release() once it is done with it; after the pool has warmed up,
+ * copies allocate nothing. Not thread-safe: give each search thread its own pool.
+ */
+public class GamePool
+{
+	private Game[] free; //released states
+	private int size;
+	
+	public GamePool()
+	{
+		this(16);
+	}
+	
+	/**
+	 * Starts with room for some released states; the pool grows as needed.
+	 *
+	 * @param capacity The number of released states to hold before growing
+	 */
+	public GamePool(int capacity)
+	{
+		free=new Game[Math.max(1,capacity)];
+	}
+	
+	/**
+	 * Returns an exact copy of a game, in a recycled state if there is one.
+	 *
+	 * @param game The game to copy
+	 * @return the copy
+	 */
+	public Game acquire(Game game)
+	{
+		Game copy;
+		if(size>0)
+		{
+			copy=free[--size];
+			free[size]=null;
+		}
+		else
+			copy=new Game();
+		
+		game.copyInto(copy);
+		return copy;
+	}
+	
+	/**
+	 * Hands a copy back for reuse. It must not be used afterwards.
+	 *
+	 * @param copy A copy from acquire()
+	 */
+	public void release(Game copy)
+	{
+		if(size==free.length)
+		{
+			Game[] larger=new Game[free.length*2];
+			System.arraycopy(free,0,larger,0,size);
+			free=larger;
+		}
+		free[size++]=copy;
+	}
+	
+	/**
+	 * @return the number of states waiting to be reused
+	 */
+	public int available()
+	{
+		return size;
+	}
+}
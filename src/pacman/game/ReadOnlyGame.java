@@ -0,0 +1,404 @@
+package pacman.game;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+
+import pacman.game.Constants.DM;
+import pacman.game.Constants.GHOST;
+import pacman.game.Constants.MOVE;
+import pacman.game.internal.Maze;
+
+/**
+ * A read-only view of a live game, to hand to controllers instead of a copy on every tick.
+ * Reads see the game as it is now; anything that would change it throws. A controller that
+ * needs to simulate ahead can still take a copy(), which is an ordinary mutable game.
+ *
+ * Every public method of Game is overridden here; a new one must be added here and to FastGameView.
+ */
+public class ReadOnlyGame extends Game
+{
+	private final Game game; // Viewed
+	
+	public ReadOnlyGame(Game game)
+	{
+		this.game = game;
+	}
+	
+	/////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////  Reads  ///////////////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+	
+	public String getGameState()
+	{
+		return game.getGameState();
+	}
+
+	public Game copy()
+	{
+		return game.copy();
+	}
+
+	public void copyInto(Game target)
+	{
+		game.copyInto(target);
+	}
+
+	public void writeState(ByteBuffer buffer)
+	{
+		game.writeState(buffer);
+	}
+
+	public int getTimeOfLastGlobalReversal()
+	{
+		return game.getTimeOfLastGlobalReversal();
+	}
+
+	public boolean gameOver()
+	{
+		return game.gameOver();
+	}
+
+	public long getHash()
+	{
+		return game.getHash();
+	}
+
+	public Maze getCurrentMaze()
+	{
+		return game.getCurrentMaze();
+	}
+
+	public int getNodeXCood(int nodeIndex)
+	{
+		return game.getNodeXCood(nodeIndex);
+	}
+
+	public int getNodeYCood(int nodeIndex)
+	{
+		return game.getNodeYCood(nodeIndex);
+	}
+
+	public int getMazeIndex()
+	{
+		return game.getMazeIndex();
+	}
+
+	public int getCurrentLevel()
+	{
+		return game.getCurrentLevel();
+	}
+
+	public int getNumberOfNodes()
+	{
+		return game.getNumberOfNodes();
+	}
+
+	public int getGhostCurrentEdibleScore()
+	{
+		return game.getGhostCurrentEdibleScore();
+	}
+
+	public int getGhostInitialNodeIndex()
+	{
+		return game.getGhostInitialNodeIndex();
+	}
+
+	public boolean isPillStillAvailable(int pillIndex)
+	{
+		return game.isPillStillAvailable(pillIndex);
+	}
+
+	public boolean isPowerPillStillAvailable(int powerPillIndex)
+	{
+		return game.isPowerPillStillAvailable(powerPillIndex);
+	}
+
+	public int getPillIndex(int nodeIndex)
+	{
+		return game.getPillIndex(nodeIndex);
+	}
+
+	public int getPowerPillIndex(int nodeIndex)
+	{
+		return game.getPowerPillIndex(nodeIndex);
+	}
+
+	public int[] getJunctionIndices()
+	{
+		return game.getJunctionIndices();
+	}
+
+	public int[] getPillIndices()
+	{
+		return game.getPillIndices();
+	}
+
+	public int[] getPowerPillIndices()
+	{
+		return game.getPowerPillIndices();
+	}
+
+	public int getPacmanCurrentNodeIndex()
+	{
+		return game.getPacmanCurrentNodeIndex();
+	}
+
+	public MOVE getPacmanLastMoveMade()
+	{
+		return game.getPacmanLastMoveMade();
+	}
+
+	public int getPacmanNumberOfLivesRemaining()
+	{
+		return game.getPacmanNumberOfLivesRemaining();
+	}
+
+	public int getGhostCurrentNodeIndex(GHOST ghostType)
+	{
+		return game.getGhostCurrentNodeIndex(ghostType);
+	}
+
+	public MOVE getGhostLastMoveMade(GHOST ghostType)
+	{
+		return game.getGhostLastMoveMade(ghostType);
+	}
+
+	public int getGhostEdibleTime(GHOST ghostType)
+	{
+		return game.getGhostEdibleTime(ghostType);
+	}
+
+	public boolean isGhostEdible(GHOST ghostType)
+	{
+		return game.isGhostEdible(ghostType);
+	}
+
+	public int getScore()
+	{
+		return game.getScore();
+	}
+
+	public int getCurrentLevelTime()
+	{
+		return game.getCurrentLevelTime();
+	}
+
+	public int getTotalTime()
+	{
+		return game.getTotalTime();
+	}
+
+	public int getNumberOfPills()
+	{
+		return game.getNumberOfPills();
+	}
+
+	public int getNumberOfPowerPills()
+	{
+		return game.getNumberOfPowerPills();
+	}
+
+	public int getNumberOfActivePills()
+	{
+		return game.getNumberOfActivePills();
+	}
+
+	public int getNumberOfActivePowerPills()
+	{
+		return game.getNumberOfActivePowerPills();
+	}
+
+	public int getGhostLairTime(GHOST ghostType)
+	{
+		return game.getGhostLairTime(ghostType);
+	}
+
+	public int[] getActivePillsIndices()
+	{
+		return game.getActivePillsIndices();
+	}
+
+	public int[] getActivePowerPillsIndices()
+	{
+		return game.getActivePowerPillsIndices();
+	}
+
+	public boolean doesGhostRequireAction(GHOST ghostType)
+	{
+		return game.doesGhostRequireAction(ghostType);
+	}
+
+	public boolean isJunction(int nodeIndex)
+	{
+		return game.isJunction(nodeIndex);
+	}
+
+	public MOVE[] getPossibleMoves(int nodeIndex)
+	{
+		return game.getPossibleMoves(nodeIndex);
+	}
+
+	public MOVE[] getPossibleMoves(int nodeIndex, MOVE lastModeMade)
+	{
+		return game.getPossibleMoves(nodeIndex, lastModeMade);
+	}
+
+	public int[] getNeighbouringNodes(int nodeIndex)
+	{
+		return game.getNeighbouringNodes(nodeIndex);
+	}
+
+	public int[] getNeighbouringNodes(int nodeIndex, MOVE lastModeMade)
+	{
+		return game.getNeighbouringNodes(nodeIndex, lastModeMade);
+	}
+
+	public int getNeighbour(int nodeIndex, MOVE moveToBeMade)
+	{
+		return game.getNeighbour(nodeIndex, moveToBeMade);
+	}
+
+	public MOVE getMoveToMakeToReachDirectNeighbour(int currentNodeIndex, int neighbourNodeIndex)
+	{
+		return game.getMoveToMakeToReachDirectNeighbour(currentNodeIndex, neighbourNodeIndex);
+	}
+
+	public int getShortestPathDistance(int fromNodeIndex, int toNodeIndex)
+	{
+		return game.getShortestPathDistance(fromNodeIndex, toNodeIndex);
+	}
+
+	public double getEuclideanDistance(int fromNodeIndex, int toNodeIndex)
+	{
+		return game.getEuclideanDistance(fromNodeIndex, toNodeIndex);
+	}
+
+	public int getManhattanDistance(int fromNodeIndex, int toNodeIndex)
+	{
+		return game.getManhattanDistance(fromNodeIndex, toNodeIndex);
+	}
+
+	public double getDistance(int fromNodeIndex, int toNodeIndex, DM distanceMeasure)
+	{
+		return game.getDistance(fromNodeIndex, toNodeIndex, distanceMeasure);
+	}
+
+	public double getDistance(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return game.getDistance(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public int getClosestNodeIndexFromNodeIndex(int fromNodeIndex, int[] targetNodeIndices, DM distanceMeasure)
+	{
+		return game.getClosestNodeIndexFromNodeIndex(fromNodeIndex, targetNodeIndices, distanceMeasure);
+	}
+
+	public int getFarthestNodeIndexFromNodeIndex(int fromNodeIndex, int[] targetNodeIndices, DM distanceMeasure)
+	{
+		return game.getFarthestNodeIndexFromNodeIndex(fromNodeIndex, targetNodeIndices, distanceMeasure);
+	}
+
+	public MOVE getNextMoveTowardsTarget(int fromNodeIndex, int toNodeIndex, DM distanceMeasure)
+	{
+		return game.getNextMoveTowardsTarget(fromNodeIndex, toNodeIndex, distanceMeasure);
+	}
+
+	public MOVE getNextMoveAwayFromTarget(int fromNodeIndex, int toNodeIndex, DM distanceMeasure)
+	{
+		return game.getNextMoveAwayFromTarget(fromNodeIndex, toNodeIndex, distanceMeasure);
+	}
+
+	public MOVE getApproximateNextMoveTowardsTarget(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return game.getApproximateNextMoveTowardsTarget(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public MOVE getApproximateNextMoveAwayFromTarget(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return game.getApproximateNextMoveAwayFromTarget(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public MOVE getNextMoveTowardsTarget(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return game.getNextMoveTowardsTarget(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public MOVE getNextMoveAwayFromTarget(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade, DM distanceMeasure)
+	{
+		return game.getNextMoveAwayFromTarget(fromNodeIndex, toNodeIndex, lastMoveMade, distanceMeasure);
+	}
+
+	public int[] getAStarPath(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade)
+	{
+		return game.getAStarPath(fromNodeIndex, toNodeIndex, lastMoveMade);
+	}
+
+	public int[] getShortestPath(int fromNodeIndex, int toNodeIndex)
+	{
+		return game.getShortestPath(fromNodeIndex, toNodeIndex);
+	}
+
+	public int[] getApproximateShortestPath(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade)
+	{
+		return game.getApproximateShortestPath(fromNodeIndex, toNodeIndex, lastMoveMade);
+	}
+
+	public int getApproximateShortestPathDistance(int fromNodeIndex, int toNodeIndex, MOVE lastMoveMade)
+	{
+		return game.getApproximateShortestPathDistance(fromNodeIndex, toNodeIndex, lastMoveMade);
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	/////////////////////////////  Changes  /////////////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+	
+	public void setGameState(String gameState)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void readState(ByteBuffer buffer)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void advanceGame(MOVE pacManMove, EnumMap<GHOST,MOVE> ghostMoves)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void updatePacMan(MOVE pacManMove)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void updateGhosts(EnumMap<GHOST,MOVE> ghostMoves)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void updateGame()
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void updateGame(boolean feast, boolean updateLairTimes, boolean updateExtraLife, boolean updateTotalTime, boolean updateLevelTime)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void makeMove(MOVE pacManMove, EnumMap<GHOST,MOVE> ghostMoves, Undo undo)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void unmakeMove(Undo undo)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+
+	public void setGlobalReversals(boolean value)
+	{
+		throw new UnsupportedOperationException("read-only view");
+	}
+}
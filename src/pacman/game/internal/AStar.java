@@ -1,266 +1,300 @@
 package pacman.game.internal;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.EnumMap;
-import java.util.PriorityQueue;
 
 import pacman.game.Game;
 import pacman.game.Constants.MOVE;
 
 /*
- * This class is used to compute the shortest path for the ghosts: as these may not reverse, one cannot use 
+ * This class is used to compute the shortest path for the ghosts: as these may not reverse, one cannot use
  * a simple look-up table. Instead, we use the pre-computed shortest path distances as an admissable
  * heuristic. Although AStar needs to be run every time a path is to be found, it is very quick and does
  * not expand too many nodes beyond those on the optimal path.
+ *
+ * The graph itself is immutable and shared by all the games on a maze. Everything a search writes (costs,
+ * parents, which nodes are open or closed, and the open heap) lives in a search context of the calling thread,
+ * reused from one search to the next, so that searches need no lock and allocate nothing but the path. Rather
+ * than being cleared, the context stamps what it writes with the number of the search, so that whatever an
+ * earlier search left behind reads as untouched.
+ *
+ * The open set is a binary heap over node indices, ordered and sifted exactly as java.util.PriorityQueue did,
+ * since the order in which nodes of equal cost leave it decides between paths of equal length.
  */
 public class AStar
 {
-	private N[] graph;
-	
-	public void createGraph(Node[] nodes)
+	private static final MOVE[] MOVES=MOVE.values();
+	private static final int NONE=-1;
+
+	//the neighbours of node n are adjacent[first[n]] to adjacent[first[n+1]-1], reached by the moves in moves[]
+	private final int numNodes;
+	private final int[] first,adjacent;
+	private final MOVE[] moves;
+
+	private final ThreadLocal<Search> searches=new ThreadLocal<Search>()
+	{
+		protected Search initialValue()
+		{
+			return new Search(numNodes);
+		}
+	};
+
+	public AStar(Node[] nodes)
 	{
-		graph=new N[nodes.length];
-		
-		//create graph
-		for(int i=0;i<nodes.length;i++)
-			graph[i]=new N(nodes[i].nodeIndex);
-		
-		//add neighbours
-		for(int i=0;i<nodes.length;i++)
-		{	
+		numNodes=nodes.length;
+		first=new int[numNodes+1];
+
+		for(int i=0;i<numNodes;i++)
+			first[i+1]=first[i]+nodes[i].neighbourhood.size();
+
+		adjacent=new int[first[numNodes]];
+		moves=new MOVE[first[numNodes]];
+
+		//in the order of the moves, as the neighbours were always tried
+		for(int i=0;i<numNodes;i++)
+		{
 			EnumMap<MOVE,Integer> neighbours=nodes[i].neighbourhood;
-			MOVE[] moves=MOVE.values();
-			
-			for(int j=0;j<moves.length;j++)
-				if(neighbours.containsKey(moves[j]))
-					graph[i].adj.add(new E(graph[neighbours.get(moves[j])],moves[j],1));	
+			int edge=first[i];
+
+			for(int j=0;j<MOVES.length;j++)
+				if(neighbours.containsKey(MOVES[j]))
+				{
+					adjacent[edge]=neighbours.get(MOVES[j]);
+					moves[edge++]=MOVES[j];
+				}
 		}
 	}
-	
-	public synchronized int[] computePathsAStar(int s, int t, MOVE lastMoveMade, Game game)
-    {	
-		N start=graph[s];
-		N target=graph[t];
-		
-        PriorityQueue<N> open = new PriorityQueue<N>();
-        ArrayList<N> closed = new ArrayList<N>();
-
-        start.g = 0;
-        start.h = game.getShortestPathDistance(start.index, target.index);
-
-        start.reached=lastMoveMade;
-        
-        open.add(start);
-
-        while(!open.isEmpty())
-        {
-            N currentNode = open.poll();
-            closed.add(currentNode);
-            
-            if (currentNode.isEqual(target))
-                break;
-
-            for(E next : currentNode.adj)
-            {
-            	if(next.move!=currentNode.reached.opposite())
-            	{
-	                double currentDistance = next.cost;
-	
-	                if (!open.contains(next.node) && !closed.contains(next.node))
-	                {
-	                    next.node.g = currentDistance + currentNode.g;
-	                    next.node.h = game.getShortestPathDistance(next.node.index, target.index);
-	                    next.node.parent = currentNode;
-	                    
-	                    next.node.reached=next.move;
-	
-	                    open.add(next.node);
-	                }
-	                else if (currentDistance + currentNode.g < next.node.g)
-	                {
-	                    next.node.g = currentDistance + currentNode.g;
-	                    next.node.parent = currentNode;
-	                    
-	                    next.node.reached=next.move;
-	
-	                    if (open.contains(next.node))
-	                        open.remove(next.node);
-	
-	                    if (closed.contains(next.node))
-	                        closed.remove(next.node);
-	
-	                    open.add(next.node);
-	                }
-	            }
-            }
-        }
-
-        return extractPath(target);
-    }
-	
-	
-	public synchronized int[] computePathsAStarNoHeuristic(int s, int t)
-    {	
-		N start=graph[s];
-		N target=graph[t];
-		
-        PriorityQueue<N> open = new PriorityQueue<N>();
-        ArrayList<N> closed = new ArrayList<N>();
-
-        start.g = 0;
-        start.h = 0;
-
-        start.reached=MOVE.NEUTRAL;
-        
-        open.add(start);
-
-        while(!open.isEmpty())
-        {
-            N currentNode = open.poll();
-            closed.add(currentNode);
-            
-            if (currentNode.isEqual(target))
-                break;
-
-            for(E next : currentNode.adj)
-            {
-            	if(next.move!=currentNode.reached.opposite())
-            	{
-	                double currentDistance = next.cost;
-	
-	                if (!open.contains(next.node) && !closed.contains(next.node))
-	                {
-	                    next.node.g = currentDistance + currentNode.g;
-	                    next.node.h = 0;
-	                    next.node.parent = currentNode;
-	                    
-	                    next.node.reached=next.move;
-	
-	                    open.add(next.node);
-	                }
-	                else if (currentDistance + currentNode.g < next.node.g)
-	                {
-	                    next.node.g = currentDistance + currentNode.g;
-	                    next.node.parent = currentNode;
-	                    
-	                    next.node.reached=next.move;
-	
-	                    if (open.contains(next.node))
-	                        open.remove(next.node);
-	
-	                    if (closed.contains(next.node))
-	                        closed.remove(next.node);
-	
-	                    open.add(next.node);
-	                }
-	            }
-            }
-        }
-
-        return extractPath(target);
-    }
-	
-	public synchronized int[] computePathsAStar(int s, int t, Game game)
-    {	
+
+	public int[] computePathsAStar(int s, int t, MOVE lastMoveMade, Game game)
+	{
+		return _search(s,t,lastMoveMade,game);
+	}
+
+	public int[] computePathsAStarNoHeuristic(int s, int t)
+	{
+		return _search(s,t,MOVE.NEUTRAL,null);
+	}
+
+	public int[] computePathsAStar(int s, int t, Game game)
+	{
 		return computePathsAStar(s, t, MOVE.NEUTRAL, game);
-    }
-
-    private synchronized int[] extractPath(N target)
-    {
-    	ArrayList<Integer> route = new ArrayList<Integer>();
-        N current = target;
-        route.add(current.index);
-
-        int iter = 0;
-        while (current.parent != null)
-        {
-        	if (current.parent.index==current.index)
-        		break;
-            route.add(current.parent.index);
-            current = current.parent;
-//            System.out.println(iter);
-            iter++;
-            if (iter>1000)
-            {
-            	int i = 0;
-            }
-        }
-        
-        Collections.reverse(route);
-
-        int[] routeArray=new int[route.size()];
-        
-        for(int i=0;i<routeArray.length;i++)
-        	routeArray[i]=route.get(i);
-        
-        return routeArray;
-    }
-    
-    public void resetGraph()
-    {
-    	for(N node : graph)
-    	{
-    		node.g=0;
-    		node.h=0;
-    		node.parent=null;
-    		node.reached=null;
-    	}
-    }
-}
+	}
 
-class N implements Comparable<N>
-{
-    public N parent;
-    public double g, h;
-    public boolean visited = false;
-    public ArrayList<E> adj;
-    public int index;
-    public MOVE reached=null;
-
-    public N(int index)
-    {
-        adj = new ArrayList<E>();
-        this.index=index;
-    }
-
-    public N(double g, double h)
-    {
-        this.g = g;
-        this.h = h;
-    }
-
-    public boolean isEqual(N another)
-    {
-        return index == another.index;
-    }
-
-    public String toString()
-    {
-        return ""+index;
-    }
-
-	public int compareTo(N another)
+	/*
+	 * One search from s to t, never reversing, with the distances of the game as the heuristic (none without a
+	 * game). A node is reopened whenever it is reached more cheaply, even once closed.
+	 */
+	private int[] _search(int s,int t,MOVE lastMoveMade,Game game)
 	{
-      if ((g + h) < (another.g + another.h))
-    	  return -1;
-      else  if ((g + h) > (another.g + another.h))
-    	  return 1;
-		
-		return 0;
+		Search search=searches.get();
+		search.begin();
+
+		search.touch(s);
+		search.g[s]=0;
+		search.h[s]=(game!=null) ? game.getShortestPathDistance(s,t) : 0;
+		search.reached[s]=lastMoveMade;
+		search.add(s);
+
+		while(search.size>0)
+		{
+			int current=search.poll();
+			search.closed[current]=search.stamp;
+
+			if(current==t)
+				break;
+
+			MOVE back=search.reached[current].opposite();
+
+			for(int edge=first[current];edge<first[current+1];edge++)
+			{
+				if(moves[edge]==back)
+					continue;
+
+				int next=adjacent[edge];
+				int cost=search.g[current]+1;
+
+				if(!search.isOpen(next) && !search.isClosed(next))
+				{
+					search.touch(next);
+					search.g[next]=cost;
+					search.h[next]=(game!=null) ? game.getShortestPathDistance(next,t) : 0;
+					search.parent[next]=current;
+					search.reached[next]=moves[edge];
+					search.add(next);
+				}
+				else if(cost<search.g[next])
+				{
+					search.g[next]=cost;
+					search.parent[next]=current;
+					search.reached[next]=moves[edge];
+
+					if(search.isOpen(next))
+						search.remove(next);
+
+					search.closed[next]=0;
+					search.add(next);
+				}
+			}
+		}
+
+		return search.path(t);
 	}
-}
 
-class E
-{
-	public N node;
-	public MOVE move;
-	public double cost;
-	
-	public E(N node,MOVE move,double cost)
+	/*
+	 * The working state of the searches of one thread. A node's cost, parent and move are only valid if it was
+	 * touched in this search, and it is closed only if closed in this search.
+	 */
+	private static final class Search
 	{
-		this.node=node;
-		this.move=move;
-		this.cost=cost;
+		int stamp;
+		final int[] touched,closed;			//the search that last touched or closed each node
+		final int[] g,h,parent;
+		final MOVE[] reached;
+
+		final int[] heap;					//the open nodes
+		final int[] position;				//of each open node in the heap, or NONE
+		int size;
+
+		Search(int numNodes)
+		{
+			touched=new int[numNodes];
+			closed=new int[numNodes];
+			g=new int[numNodes];
+			h=new int[numNodes];
+			parent=new int[numNodes];
+			reached=new MOVE[numNodes];
+			heap=new int[numNodes];
+			position=new int[numNodes];
+		}
+
+		void begin()
+		{
+			//once the stamps wrap around, start again from clean arrays
+			if(++stamp==Integer.MAX_VALUE)
+			{
+				Arrays.fill(touched,0);
+				Arrays.fill(closed,0);
+				stamp=1;
+			}
+
+			size=0;
+		}
+
+		void touch(int node)
+		{
+			touched[node]=stamp;
+			parent[node]=NONE;
+			position[node]=NONE;
+		}
+
+		boolean isOpen(int node)
+		{
+			return touched[node]==stamp && position[node]!=NONE;
+		}
+
+		boolean isClosed(int node)
+		{
+			return closed[node]==stamp;
+		}
+
+		/*
+		 * The path to a node back through the parents, or just the node if the search never reached it.
+		 */
+		int[] path(int target)
+		{
+			int length=1;
+			if(touched[target]==stamp)
+				for(int node=target;parent[node]!=NONE;node=parent[node])
+					length++;
+
+			int[] path=new int[length];
+			int node=target;
+			for(int i=length-1;i>=0;i--)
+			{
+				path[i]=node;
+				if(i>0)
+					node=parent[node];
+			}
+
+			return path;
+		}
+
+		//the heap, as in java.util.PriorityQueue, by g+h as they are when compared
+
+		private int compare(int a,int b)
+		{
+			int fa=g[a]+h[a],fb=g[b]+h[b];
+			return (fa<fb) ? -1 : ((fa>fb) ? 1 : 0);
+		}
+
+		void add(int node)
+		{
+			siftUp(size++,node);
+		}
+
+		int poll()
+		{
+			int result=heap[0];
+			int last=heap[--size];
+			position[result]=NONE;
+
+			if(size!=0)
+				siftDown(0,last);
+
+			return result;
+		}
+
+		void remove(int node)
+		{
+			int i=position[node];
+			int s=--size;
+			position[node]=NONE;
+
+			if(s!=i)
+			{
+				int moved=heap[s];
+				siftDown(i,moved);
+				if(heap[i]==moved)
+					siftUp(i,moved);
+			}
+		}
+
+		private void siftUp(int k,int node)
+		{
+			while(k>0)
+			{
+				int up=(k-1)>>>1;
+				int e=heap[up];
+				if(compare(node,e)>=0)
+					break;
+				_place(k,e);
+				k=up;
+			}
+			_place(k,node);
+		}
+
+		private void siftDown(int k,int node)
+		{
+			int half=size>>>1;
+			while(k<half)
+			{
+				int child=(k<<1)+1;
+				int c=heap[child];
+				int right=child+1;
+				if(right<size && compare(c,heap[right])>0)
+					c=heap[child=right];
+				if(compare(node,c)<=0)
+					break;
+				_place(k,c);
+				k=child;
+			}
+			_place(k,node);
+		}
+
+		private void _place(int k,int node)
+		{
+			heap[k]=node;
+			position[node]=k;
+		}
 	}
-}
\ No newline at end of file
+}
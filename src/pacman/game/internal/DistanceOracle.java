@@ -0,0 +1,11 @@
+package pacman.game.internal;
+
+/*
+ * Answers shortest path distances between any two nodes of a maze, in constant time, or -1 if there is no path.
+ * Implementations are immutable once built, so one can be shared by all the games and threads using its maze.
+ */
+public interface DistanceOracle
+{
+	public int get(int fromNodeIndex,int toNodeIndex);
+	public long bytes(); //memory or mapped file taken by the distances
+}
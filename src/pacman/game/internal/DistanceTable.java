@@ -0,0 +1,425 @@
+package pacman.game.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static pacman.game.Constants.*;
+
+/*
+ * The pre-computed shortest path distances of a maze, from any node to any other. Since the graph is symmetric,
+ * only the lower triangle is stored, row by row: the distance between nodes i<=j is at j*(j+1)/2+i.
+ *
+ * The table is loaded from a binary file next to the text one (e.g. data/distances/da.bin) when there is one,
+ * by mapping it into memory: nothing is parsed, lookups read straight from the mapped pages, and all the JVMs
+ * on a host share those pages. The binary format is a header of three ints (MAGIC, the number of nodes and the
+ * bytes per entry, 2 or 4), followed by the entries, big-endian. 16-bit entries are used whenever all the
+ * distances fit, which halves the file. The binary files are not kept under version control: the first load
+ * that finds none parses the text file, which stays the source, and writes the binary file next to it for the
+ * loads after. Run main() to convert them ahead of time, e.g. where the data directory is read-only.
+ *
+ * Lookups do not move the buffer, so one table can be shared by any number of threads.
+ */
+public final class DistanceTable implements DistanceOracle
+{
+	public static final int MAGIC=0x504D4454;	//"PMDT"
+	private static final int HEADER=12;			//bytes
+
+	public final int numNodes;
+	private final ShortBuffer shorts;			//one of these two holds the entries
+	private final IntBuffer ints;
+
+	private DistanceTable(int numNodes,ShortBuffer shorts,IntBuffer ints)
+	{
+		this.numNodes=numNodes;
+		this.shorts=shorts;
+		this.ints=ints;
+	}
+
+	/*
+	 * A table over entries already in memory, in the order of the text files.
+	 */
+	public DistanceTable(int numNodes,int[] distances)
+	{
+		this(numNodes,null,IntBuffer.wrap(distances));
+	}
+
+	/*
+	 * The distance between two nodes.
+	 */
+	public int get(int fromNodeIndex,int toNodeIndex)
+	{
+		if(fromNodeIndex==toNodeIndex)
+			return 0;
+
+		int index;
+		if(fromNodeIndex<toNodeIndex)
+			index=((toNodeIndex*(toNodeIndex+1))/2)+fromNodeIndex;
+		else
+			index=((fromNodeIndex*(fromNodeIndex+1))/2)+toNodeIndex;
+
+		return (shorts!=null) ? shorts.get(index) : ints.get(index);
+	}
+
+	/*
+	 * Bytes taken by the entries, in the heap or mapped.
+	 */
+	public long bytes()
+	{
+		return (shorts!=null) ? 2L*shorts.capacity() : 4L*ints.capacity();
+	}
+
+	/*
+	 * Writes the table to a binary file if its name ends in .bin, and to a text file otherwise.
+	 */
+	public void save(File file) throws IOException
+	{
+		int[] distances=new int[(int)((long)numNodes*(numNodes+1)/2)];
+		for(int i=0;i<distances.length;i++)
+			distances[i]=(shorts!=null) ? shorts.get(i) : ints.get(i);
+
+		if(file.getName().endsWith(".bin"))
+			write(file,numNodes,distances);
+		else
+			writeText(file,distances);
+	}
+
+	/*
+	 * Loads the distances of a maze with a number of nodes, from its binary file if there is a valid one,
+	 * otherwise from its text file.
+	 */
+	public static DistanceTable load(String fileName,int numNodes)
+	{
+		return load(new File(pathDistances,fileName),numNodes);
+	}
+
+	/*
+	 * Loads a distance table from anywhere, preferring the binary file next to the text one, and writing that
+	 * file from the text one if it is missing or invalid.
+	 */
+	public static DistanceTable load(File text,int numNodes)
+	{
+		File binary=new File(text.getPath()+".bin");
+
+		if(binary.exists())
+		{
+			try
+			{
+				DistanceTable table=map(binary);
+				if(table.numNodes==numNodes)
+					return table;
+
+				System.out.println("ERROR: "+binary+" has "+table.numNodes+" nodes instead of "+numNodes+"; reading the text file");
+			}
+			catch(IOException ioe)
+			{
+				System.out.println("ERROR: could not map "+binary+" ("+ioe.getMessage()+"); reading the text file");
+			}
+		}
+
+		int[] distances=loadText(text,numNodes);
+
+		try
+		{
+			write(binary,numNodes,distances);
+		}
+		catch(IOException ioe)
+		{
+			System.out.println("ERROR: could not write "+binary+" ("+ioe.getMessage()+"); the text file will be read again next time");
+		}
+
+		return new DistanceTable(numNodes,distances);
+	}
+
+	/*
+	 * Maps a binary table into memory. The mapping stays valid once the file is closed.
+	 */
+	public static DistanceTable map(File binary) throws IOException
+	{
+		RandomAccessFile file=new RandomAccessFile(binary,"r");
+
+		try
+		{
+			FileChannel channel=file.getChannel();
+			ByteBuffer buffer=channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+
+			if(buffer.capacity()<HEADER || buffer.getInt(0)!=MAGIC)
+				throw new IOException("not a distance table");
+
+			int numNodes=buffer.getInt(4);
+			int width=buffer.getInt(8);
+			long entries=(long)numNodes*(numNodes+1)/2;
+
+			if((width!=2 && width!=4) || buffer.capacity()!=HEADER+entries*width)
+				throw new IOException("truncated or corrupt distance table");
+
+			buffer.position(HEADER);
+			ByteBuffer body=buffer.slice();
+
+			if(width==2)
+				return new DistanceTable(numNodes,body.asShortBuffer(),null);
+			else
+				return new DistanceTable(numNodes,null,body.asIntBuffer());
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+	/*
+	 * Reads a text table, one distance per line.
+	 */
+	private static int[] loadText(File text,int numNodes)
+	{
+		int[] distances=new int[((numNodes*(numNodes-1))/2)+numNodes];
+
+		try
+		{
+			BufferedReader br=new BufferedReader(new InputStreamReader(new FileInputStream(text)));
+			String input=br.readLine();
+
+			int index=0;
+
+			while(input!=null)
+			{
+				distances[index++]=Integer.parseInt(input);
+				input=br.readLine();
+			}
+
+			br.close();
+		}
+		catch(IOException ioe)
+		{
+			ioe.printStackTrace();
+		}
+
+		return distances;
+	}
+
+	/*
+	 * Converts a text table to the binary format. The number of nodes follows from the number of entries.
+	 */
+	public static void convert(File text,File binary) throws IOException
+	{
+		int count=0;
+		BufferedReader br=new BufferedReader(new InputStreamReader(new FileInputStream(text)));
+		while(br.readLine()!=null)
+			count++;
+		br.close();
+
+		int numNodes=(int)Math.round((Math.sqrt(8.0*count+1)-1)/2);
+		if((long)numNodes*(numNodes+1)/2!=count)
+			throw new IOException(text+" has "+count+" entries, which is not a triangle");
+
+		write(binary,numNodes,loadText(text,numNodes));
+	}
+
+	/*
+	 * Writes distances in the order of the text files to a binary file, through a temporary file of its own so
+	 * that a JVM starting meanwhile never maps a partial one, and JVMs writing the same file at once do no harm.
+	 */
+	public static void write(File binary,int numNodes,int[] distances) throws IOException
+	{
+		int width=2;
+		for(int i=0;i<distances.length;i++)
+			if(distances[i]<Short.MIN_VALUE || distances[i]>Short.MAX_VALUE)
+				width=4;
+
+		File tmp=File.createTempFile(binary.getName()+".",".tmp",binary.getAbsoluteFile().getParentFile());
+		DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(numNodes);
+			out.writeInt(width);
+
+			for(int i=0;i<distances.length;i++)
+				if(width==2)
+					out.writeShort(distances[i]);
+				else
+					out.writeInt(distances[i]);
+		}
+		finally
+		{
+			out.close();
+		}
+
+		_rename(tmp,binary);
+	}
+
+	/*
+	 * Writes distances in the order of the text files as a text file, one per line, again through a temporary file.
+	 */
+	public static void writeText(File text,int[] distances) throws IOException
+	{
+		File tmp=new File(text.getPath()+".tmp");
+		BufferedWriter out=new BufferedWriter(new FileWriter(tmp),1<<16);
+
+		try
+		{
+			for(int i=0;i<distances.length;i++)
+			{
+				out.write(Integer.toString(distances[i]));
+				out.write('\n');
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+
+		_rename(tmp,text);
+	}
+
+	private static void _rename(File tmp,File target) throws IOException
+	{
+		if(!tmp.renameTo(target))
+		{
+			target.delete();
+			if(!tmp.renameTo(target))
+				throw new IOException("could not rename "+tmp);
+		}
+	}
+
+	/*
+	 * Computes the distances between all the nodes of a graph, in the order of the text files, on all the cores.
+	 */
+	public static int[] build(Node[] graph)
+	{
+		return build(graph,Runtime.getRuntime().availableProcessors());
+	}
+
+	/*
+	 * Computes the distances between all the nodes of a graph, in the order of the text files, by a breadth-first
+	 * search from every node (the graph is unweighted); -1 where there is no path. The searches are shared out
+	 * among a number of threads, each taking the next node not yet taken, with its own queue and distances; each
+	 * search fills only its own row of the table.
+	 */
+	public static int[] build(Node[] graph,int threads)
+	{
+		final int numNodes=graph.length;
+		final int[] distances=new int[(int)((long)numNodes*(numNodes+1)/2)];
+
+		//the neighbours of node n are neighbours[first[n]] to neighbours[first[n+1]-1]
+		final int[] first=new int[numNodes+1];
+		for(int n=0;n<numNodes;n++)
+			first[n+1]=first[n]+graph[n].numNeighbouringNodes;
+
+		final int[] neighbours=new int[first[numNodes]];
+		for(int n=0;n<numNodes;n++)
+		{
+			int i=first[n];
+			for(int neighbour : graph[n].neighbourhood.values())
+				neighbours[i++]=neighbour;
+		}
+
+		final AtomicInteger next=new AtomicInteger();
+		Thread[] workers=new Thread[Math.max(1,Math.min(threads,numNodes))];
+
+		for(int t=0;t<workers.length;t++)
+		{
+			workers[t]=new Thread("distances-"+t)
+			{
+				public void run()
+				{
+					int[] distance=new int[numNodes];
+					int[] queue=new int[numNodes];
+
+					for(int from=next.getAndIncrement();from<numNodes;from=next.getAndIncrement())
+						_search(from,first,neighbours,distance,queue,distances);
+				}
+			};
+			workers[t].start();
+		}
+
+		for(Thread worker : workers)
+		{
+			try
+			{
+				worker.join();
+			}
+			catch(InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted while computing distances");
+			}
+		}
+
+		return distances;
+	}
+
+	/*
+	 * One breadth-first search, written to the row of its source: the distances to the nodes up to it.
+	 */
+	private static void _search(int from,int[] first,int[] neighbours,int[] distance,int[] queue,int[] distances)
+	{
+		Arrays.fill(distance,-1);
+		distance[from]=0;
+		int head=0,tail=0;
+		queue[tail++]=from;
+
+		while(head<tail)
+		{
+			int node=queue[head++];
+			for(int i=first[node];i<first[node+1];i++)
+				if(distance[neighbours[i]]<0)
+				{
+					distance[neighbours[i]]=distance[node]+1;
+					queue[tail++]=neighbours[i];
+				}
+		}
+
+		System.arraycopy(distance,0,distances,(int)((long)from*(from+1)/2),from+1);
+	}
+
+	/*
+	 * Converts the distance tables of all the mazes, or one text table to a binary file, or computes the distances
+	 * of a maze file, such as those written by ReadMazeFromFile, into a binary file if its name ends in .bin and
+	 * a text file otherwise.
+	 *
+	 * Usage: DistanceTable [text binary | build maze distances]
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length==3 && args[0].equals("build"))
+		{
+			File distances=new File(args[2]);
+			long start=System.currentTimeMillis();
+			DistanceTable table=(DistanceTable)new Maze(new File(args[1])).shortestPathDistances;
+			table.save(distances);
+
+			System.out.println(args[1]+" -> "+distances+" ("+table.numNodes+" nodes, "+(System.currentTimeMillis()-start)+" ms)");
+			return;
+		}
+
+		if(args.length==2)
+		{
+			convert(new File(args[0]),new File(args[1]));
+			return;
+		}
+
+		for(int i=0;i<distNames.length;i++)
+		{
+			File text=new File(pathDistances,distNames[i]);
+			File binary=new File(pathDistances,distNames[i]+".bin");
+			convert(text,binary);
+			System.out.println(text+" -> "+binary+" ("+binary.length()+" bytes)");
+		}
+	}
+}
\ No newline at end of file
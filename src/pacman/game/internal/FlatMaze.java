@@ -0,0 +1,61 @@
+package pacman.game.internal;
+
+import pacman.game.Constants.MOVE;
+
+/*
+ * A maze flattened into int arrays for FastGame, so that a tick needs no EnumMap lookups or
+ * unboxing. Moves are indexed by their ordinals (UP, RIGHT, DOWN, LEFT, NEUTRAL).
+ */
+public final class FlatMaze
+{
+	public final int numNodes,numPills,numPowerPills;
+	public final int initialPacManNodeIndex,lairNodeIndex,initialGhostNodeIndex;
+	public final int[] neighbours;				//[node*4+move]: the node that way, or -1
+	public final int[] pillIndex,powerPillIndex;	//[node]: its pill, or -1
+	public final int[] ghostMoves;				//[(node*5+lastMove)*4+i]: the moves a ghost that came this way may take
+	public final int[] numGhostMoves;			//[node*5+lastMove]: how many, or -1 if it cannot have come this way
+	public final DistanceOracle shortestPathDistances;	//shared with the maze
+	public final Maze source;					//flattened
+
+	public FlatMaze(Maze maze)
+	{
+		MOVE[] moves=MOVE.values();
+
+		source=maze;
+		numNodes=maze.graph.length;
+		numPills=maze.pillIndices.length;
+		numPowerPills=maze.powerPillIndices.length;
+		initialPacManNodeIndex=maze.initialPacManNodeIndex;
+		lairNodeIndex=maze.lairNodeIndex;
+		initialGhostNodeIndex=maze.initialGhostNodeIndex;
+		shortestPathDistances=maze.shortestPathDistances;
+
+		neighbours=new int[numNodes*4];
+		pillIndex=new int[numNodes];
+		powerPillIndex=new int[numNodes];
+		ghostMoves=new int[numNodes*5*4];
+		numGhostMoves=new int[numNodes*5];
+
+		for(int n=0;n<numNodes;n++)
+		{
+			Node node=maze.graph[n];
+			pillIndex[n]=node.pillIndex;
+			powerPillIndex[n]=node.powerPillIndex;
+
+			for(int m=0;m<4;m++)
+			{
+				Integer neighbour=node.neighbourhood.get(moves[m]);
+				neighbours[n*4+m]=(neighbour==null) ? -1 : neighbour;
+			}
+
+			for(int last=0;last<moves.length;last++)
+			{
+				MOVE[] possible=node.allPossibleMoves.get(moves[last]);
+				numGhostMoves[n*5+last]=(possible==null) ? -1 : possible.length;
+
+				for(int i=0;possible!=null && i<possible.length;i++)
+					ghostMoves[(n*5+last)*4+i]=possible[i].ordinal();
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package pacman.game.internal;
+
+import java.util.Random;
+
+/*
+ * The same generator as java.util.Random, draw for draw, but with its state exposed so that
+ * Game.unmakeMove() can put it back. Not thread-safe, like the game that owns it. Only the
+ * state behind next() is restored, so nextGaussian() should not be used across an unmake.
+ */
+public final class GameRandom extends Random
+{
+	private static final long serialVersionUID=1L;
+
+	private static final long MULTIPLIER=0x5DEECE66DL, ADDEND=0xBL, MASK=(1L<<48)-1;
+
+	private long state;
+
+	public GameRandom(long seed)
+	{
+		super(seed);	//calls setSeed()
+	}
+
+	public void setSeed(long seed)
+	{
+		super.setSeed(seed);
+		state=(seed^MULTIPLIER)&MASK;
+	}
+
+	protected int next(int bits)
+	{
+		state=(state*MULTIPLIER+ADDEND)&MASK;
+		return (int)(state>>>(48-bits));
+	}
+
+	public long getState()
+	{
+		return state;
+	}
+
+	public void setState(long state)
+	{
+		this.state=state;
+	}
+}
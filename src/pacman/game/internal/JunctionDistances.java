@@ -0,0 +1,258 @@
+package pacman.game.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import pacman.game.Constants.MOVE;
+
+/*
+ * Shortest path distances from the junction decomposition of a maze, for mazes too large for a full table. Every
+ * node that is not on a plain corridor is an anchor: the junctions, and any dead end or isolated node such as the
+ * lair. Every other node lies on a corridor between two anchors (the same one for a loop), and knows which anchors
+ * those are and how far away. Only the distances between anchors are tabulated, so the memory grows with the
+ * square of the number of junctions rather than of nodes.
+ *
+ * A distance is then the shorter of going straight along a shared corridor, or out through one of the two ends
+ * of the first corridor and in through one of the two ends of the second: at most four table lookups, whatever the
+ * size of the maze. The anchor table is 16-bit when asked for and all its distances fit.
+ */
+public final class JunctionDistances implements DistanceOracle
+{
+	private static final int NONE=-1;
+	//fields of a node, side by side so that a query touches one cache line per node
+	private static final int END1=0,DIST1=1,END2=2,DIST2=3,CORRIDOR=4,POSITION=5,STRIDE=6;
+
+	public final int numNodes,numAnchors;
+	private final int[] nodes;					//[node*STRIDE+field]: the anchors at both ends of its corridor and how
+												//far they are, and its corridor and how far along it (NONE for an anchor)
+	private final short[] shortTable;			//[a*numAnchors+b]: distance between anchors, or -1; one of these two
+	private final int[] intTable;
+
+	/*
+	 * Decomposes a maze graph and computes the distances between its anchors.
+	 */
+	public JunctionDistances(Node[] graph,boolean compact)
+	{
+		numNodes=graph.length;
+		int[] end1=new int[numNodes],end2=new int[numNodes],dist1=new int[numNodes],dist2=new int[numNodes];
+		int[] corridor=new int[numNodes],position=new int[numNodes];
+
+		int[] anchorOf=new int[numNodes];
+		Arrays.fill(anchorOf,NONE);
+		Arrays.fill(corridor,NONE);
+
+		ArrayList<Integer> anchors=new ArrayList<Integer>();
+		for(int n=0;n<numNodes;n++)
+			if(graph[n].numNeighbouringNodes!=2)
+				anchorOf[n]=_addAnchor(anchors,n);
+
+		//walk the corridors out of every anchor; a loop with no anchor on it gets one
+		ArrayList<int[]> edges=new ArrayList<int[]>(); //{anchor, anchor, length}
+		int corridors=0;
+		int walked=0;
+
+		for(int n=0;n<=numNodes;n++)
+		{
+			for(;walked<anchors.size();walked++)
+			{
+				int start=anchors.get(walked);
+
+				for(MOVE move : graph[start].neighbourhood.keySet())
+				{
+					int next=graph[start].neighbourhood.get(move);
+					if(anchorOf[next]==NONE && corridor[next]!=NONE)
+						continue; //walked from its other end already
+
+					ArrayList<Integer> nodes=new ArrayList<Integer>();
+					int current=next;
+					MOVE heading=move;
+
+					while(anchorOf[current]==NONE)
+					{
+						nodes.add(current);
+						corridor[current]=corridors;
+						heading=_onward(graph[current],heading);
+						current=graph[current].neighbourhood.get(heading);
+					}
+
+					int length=nodes.size()+1;
+					int end=anchorOf[current];
+
+					for(int i=0;i<nodes.size();i++)
+					{
+						int node=nodes.get(i);
+						end1[node]=walked;
+						dist1[node]=i+1;
+						end2[node]=end;
+						dist2[node]=length-(i+1);
+						position[node]=i+1;
+					}
+
+					edges.add(new int[]{walked,end,length});
+					corridors++;
+				}
+			}
+
+			if(n<numNodes && anchorOf[n]==NONE && corridor[n]==NONE)
+				anchorOf[n]=_addAnchor(anchors,n);
+		}
+
+		numAnchors=anchors.size();
+		for(int a=0;a<numAnchors;a++)
+		{
+			int node=anchors.get(a);
+			end1[node]=end2[node]=a;
+			dist1[node]=dist2[node]=0;
+		}
+
+		nodes=new int[numNodes*STRIDE];
+		for(int n=0;n<numNodes;n++)
+		{
+			nodes[n*STRIDE+END1]=end1[n];
+			nodes[n*STRIDE+DIST1]=dist1[n];
+			nodes[n*STRIDE+END2]=end2[n];
+			nodes[n*STRIDE+DIST2]=dist2[n];
+			nodes[n*STRIDE+CORRIDOR]=corridor[n];
+			nodes[n*STRIDE+POSITION]=position[n];
+		}
+
+		int[] table=_anchorDistances(edges);
+
+		boolean fits=compact;
+		for(int i=0;fits && i<table.length;i++)
+			fits=(table[i]<=Short.MAX_VALUE);
+
+		if(fits)
+		{
+			shortTable=new short[table.length];
+			for(int i=0;i<table.length;i++)
+				shortTable[i]=(short)table[i];
+			intTable=null;
+		}
+		else
+		{
+			shortTable=null;
+			intTable=table;
+		}
+	}
+
+	/*
+	 * The distance between two nodes, or -1 if there is no path.
+	 */
+	public int get(int fromNodeIndex,int toNodeIndex)
+	{
+		if(fromNodeIndex==toNodeIndex)
+			return 0;
+
+		int from=fromNodeIndex*STRIDE;
+		int to=toNodeIndex*STRIDE;
+
+		int best=Integer.MAX_VALUE;
+		if(nodes[from+CORRIDOR]!=NONE && nodes[from+CORRIDOR]==nodes[to+CORRIDOR])
+			best=Math.abs(nodes[from+POSITION]-nodes[to+POSITION]);
+
+		best=_via(nodes[from+END1],nodes[from+DIST1],to,best);
+		best=_via(nodes[from+END2],nodes[from+DIST2],to,best);
+
+		return (best==Integer.MAX_VALUE) ? -1 : best;
+	}
+
+	/*
+	 * Bytes taken by the decomposition and the table.
+	 */
+	public long bytes()
+	{
+		long tableBytes=(shortTable!=null) ? 2L*shortTable.length : 4L*intTable.length;
+		return 4L*nodes.length+tableBytes;
+	}
+
+	/*
+	 * The best distance so far, or through one anchor near the source and either anchor near the target.
+	 */
+	private int _via(int anchor,int distance,int to,int best)
+	{
+		int row=anchor*numAnchors;
+
+		int between=_table(row+nodes[to+END1]);
+		if(between>=0 && distance+between+nodes[to+DIST1]<best)
+			best=distance+between+nodes[to+DIST1];
+
+		between=_table(row+nodes[to+END2]);
+		if(between>=0 && distance+between+nodes[to+DIST2]<best)
+			best=distance+between+nodes[to+DIST2];
+
+		return best;
+	}
+
+	private int _table(int index)
+	{
+		return (shortTable!=null) ? shortTable[index] : intTable[index];
+	}
+
+	/*
+	 * Registers an anchor, returning its index.
+	 */
+	private static int _addAnchor(ArrayList<Integer> anchors,int node)
+	{
+		anchors.add(node);
+		return anchors.size()-1;
+	}
+
+	/*
+	 * The way on along a corridor, for a node with two neighbours entered heading one way.
+	 */
+	private static MOVE _onward(Node node,MOVE heading)
+	{
+		for(MOVE move : node.neighbourhood.keySet())
+			if(move!=heading.opposite())
+				return move;
+
+		return heading.opposite(); //both ways lead back
+	}
+
+	/*
+	 * Dijkstra from every anchor over the corridors between them; -1 where there is no path.
+	 */
+	private int[] _anchorDistances(ArrayList<int[]> edges)
+	{
+		int n=numAnchors;
+
+		ArrayList<ArrayList<int[]>> adjacent=new ArrayList<ArrayList<int[]>>();
+		for(int a=0;a<n;a++)
+			adjacent.add(new ArrayList<int[]>());
+
+		for(int[] edge : edges)
+		{
+			adjacent.get(edge[0]).add(new int[]{edge[1],edge[2]});
+			adjacent.get(edge[1]).add(new int[]{edge[0],edge[2]});
+		}
+
+		int[] table=new int[n*n];
+		Arrays.fill(table,-1);
+		PriorityQueue<Long> queue=new PriorityQueue<Long>();
+
+		for(int source=0;source<n;source++)
+		{
+			int row=source*n;
+			queue.add((long)source);
+
+			while(!queue.isEmpty())
+			{
+				long entry=queue.poll();
+				int distance=(int)(entry>>>32);
+				int anchor=(int)entry;
+
+				if(table[row+anchor]>=0)
+					continue;
+				table[row+anchor]=distance;
+
+				for(int[] edge : adjacent.get(anchor))
+					if(table[row+edge[0]]<0)
+						queue.add(((long)(distance+edge[1])<<32)|edge[0]);
+			}
+		}
+
+		return table;
+	}
+}
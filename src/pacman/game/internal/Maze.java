@@ -1,6 +1,7 @@
 package pacman.game.internal;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -8,8 +9,6 @@ import java.io.InputStreamReader;
 //import pacman.game.Constants.MOVE;
 import java.util.HashMap;
 
-import pacman.utils.DataFile;
-
 import static pacman.game.Constants.*;
 
 /*
@@ -21,7 +20,8 @@ import static pacman.game.Constants.*;
 public final class Maze
 {
 	public AStar astar;
-	public int[] shortestPathDistances,pillIndices,powerPillIndices,junctionIndices;	//Information for the controllers
+	public DistanceOracle shortestPathDistances;										//Shortest path distances between all nodes
+	public int[] pillIndices,powerPillIndices,junctionIndices;							//Information for the controllers
 	public int initialPacManNodeIndex,lairNodeIndex,initialGhostNodeIndex;				//Maze-specific information
 	public Node[] graph;																//The actual maze, stored as a graph (set of nodes)
 	public String name;																	//Name of the Maze
@@ -35,59 +35,49 @@ public final class Maze
 	 */		
 	public Maze(int index)
 	{
-		loadNodes(nodeNames[index]);
-		loadDistances(distNames[index]);
+		this(new File(pathMazes,nodeNames[index]+".txt"),new File(pathDistances,distNames[index]));
+	}
+	
+	/*
+	 * Loads a maze from any files, such as those written by MazeGenerator. The distances come from the binary or
+	 * text table next to the distance file; without one (null), or for a maze too large for a table, they come
+	 * from the junctions of the maze instead.
+	 */
+	public Maze(File nodes,File distances)
+	{
+		loadNodes(nodes);
+		loadDistances(distances);
 		
 		//create A* graph for shortest paths for the ghosts
-		astar=new AStar();
-		astar.createGraph(graph);
+		astar=new AStar(graph);
 	}
 	
+	/*
+	 * Loads a maze from data/mazes, such as one written by ReadMazeFromFile, and computes its distances.
+	 */
 	public Maze(String filename)
 	{
+		this(new File(pathMazes,filename+".txt"));
+	}
+	
+	/*
+	 * Loads a maze from any file and computes its full distance table in memory, on all the cores (see
+	 * DistanceTable.build), whatever its size. To keep the table, save it, or run "DistanceTable build".
+	 */
+	public Maze(File nodes)
+	{
+		loadNodes(nodes);
+		this.shortestPathDistances=new DistanceTable(graph.length,DistanceTable.build(graph));
 		
-		loadNodes(filename);
-
-		int[] distances = new int[(graph.length*(graph.length+1))/2];
-		for (int i=0;i<graph.length;i++)
-		{
-			for (int j = i;j<graph.length;j++)
-			{
-				astar=new AStar();
-				astar.createGraph(graph);
-				if (j==i)
-				{
-					distances[((j*(j+1))/2)+i]= 0;
-				}
-				else
-				{
-					int[] path = astar.computePathsAStarNoHeuristic(i, j);
-					int dist = path.length-1;
-					if (dist==0)
-						distances[((j*(j+1))/2)+i]=-1;
-					else
-						distances[((j*(j+1))/2)+i]= dist;
-				}
-				System.out.println(i+","+j);
-			}
-			
-		}
-		DataFile file2 = new DataFile("data/mazes/openSmallDist1_fixed");
-		file2.clear();
-		for (int i = 0;i<distances.length;i++)
-		{
-			file2.append(distances[i]+"\n");
-		}
-		file2.close();
-		System.out.println("done");
+		astar=new AStar(graph);
 	}
 	
 	//Loads all the nodes from files and initialises all maze-specific information.
-	private void loadNodes(String fileName)
+	private void loadNodes(File file)
 	{
         try
         {         	
-        	BufferedReader br=new BufferedReader(new InputStreamReader(new FileInputStream(pathMazes+System.getProperty("file.separator")+fileName+".txt")));	 
+        	BufferedReader br=new BufferedReader(new InputStreamReader(new FileInputStream(file)));	 
             String input=br.readLine();		
             
             //preamble
@@ -138,28 +128,14 @@ public final class Maze
 	/*
 	 * Loads the shortest path distances which have been pre-computed. The data contains the shortest distance from
 	 * any node in the maze to any other node. Since the graph is symmetric, the symmetries have been removed to preserve
-	 * memory and all distances are stored in a 1D array; they are looked-up using getDistance(-). 
+	 * memory; they are looked up through the table, which maps its binary file if there is one (see DistanceTable).
+	 * Mazes too large for a table use the distances between their junctions instead (see JunctionDistances).
 	 */
-	private void loadDistances(String fileName)
+	private void loadDistances(File file)
 	{
-		this.shortestPathDistances=new int[((graph.length*(graph.length-1))/2)+graph.length];
-		
-        try
-        {
-        	BufferedReader br=new BufferedReader(new InputStreamReader(new FileInputStream(pathDistances+System.getProperty("file.separator")+fileName)));
-            String input=br.readLine();
-            
-            int index=0;
-            
-            while(input!=null)
-            {	
-            	shortestPathDistances[index++]=Integer.parseInt(input);
-                input=br.readLine();
-            }
-        }
-        catch(IOException ioe)
-        {
-            ioe.printStackTrace();
-        }
+		if(file==null || graph.length>MAX_TABLE_NODES)
+			this.shortestPathDistances=new JunctionDistances(graph,COMPACT_DISTANCES);
+		else
+			this.shortestPathDistances=DistanceTable.load(file,graph.length);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package pacman.game.internal;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import static pacman.game.Constants.*;
+
+/*
+ * Generates mazes of any size in the format of the files in data/mazes, to see how the game and the controllers
+ * scale beyond the four built-in mazes. A maze is a lattice of points joined by straight corridors, of CORRIDOR
+ * nodes each: first a random spanning tree, so that everything is connected, then enough extra corridors that no
+ * point is a dead end, and then some more at random, which is what makes the junctions. Longer corridors and fewer
+ * extra ones give fewer junctions per node.
+ *
+ * Pills lie on every PILL_SPACING-th node, power pills on the points nearest the corners, Ms Pac-Man starts at the
+ * point nearest a spot below the middle, and the ghosts at the point nearest the middle. The lair is a node with
+ * no neighbours, as in the built-in mazes. For mazes small enough for a distance table (MAX_TABLE_NODES), the
+ * table is written next to the maze in the binary format of DistanceTable; larger ones use JunctionDistances.
+ *
+ * Usage: MazeGenerator name nodes [directory [seed [corridor [loops [pill spacing [power pills]]]]]]
+ */
+public final class MazeGenerator
+{
+	public static final int CORRIDOR=10;			//nodes from one lattice point to the next (at least 2)
+	public static final double LOOPS=0.25;			//chance of each extra corridor beyond those needed
+	public static final int PILL_SPACING=4;			//nodes from one pill to the next along a corridor
+	public static final int POWER_PILLS=4;
+
+	private final int corridor,pillSpacing,powerPills;
+	private final double loops;
+	private final Random rng;
+
+	//the lattice, and which of its corridors are open: to the right of a point, and below it
+	private int rows,columns;
+	private boolean[] right,down;
+
+	public MazeGenerator(long seed,int corridor,double loops,int pillSpacing,int powerPills)
+	{
+		if(corridor<2)
+			throw new IllegalArgumentException("corridors need at least 2 nodes, got "+corridor);
+
+		this.corridor=corridor;
+		this.loops=loops;
+		this.pillSpacing=pillSpacing;
+		this.powerPills=powerPills;
+		this.rng=new Random(seed);
+	}
+
+	public MazeGenerator(long seed)
+	{
+		this(seed,CORRIDOR,LOOPS,PILL_SPACING,POWER_PILLS);
+	}
+
+	/*
+	 * Writes a maze of about this many nodes to directory/name.txt, and its distance table if it is small enough
+	 * to directory/dname.bin. Returns the maze file.
+	 */
+	public File generate(String name,int nodes,File directory) throws IOException
+	{
+		//guess the lattice from the nodes per point of a trial maze, then make the real one
+		_lattice(8,8);
+		double nodesPerPoint=(double)_countNodes()/(rows*columns);
+		int side=Math.max(2,(int)Math.round(Math.sqrt(nodes/nodesPerPoint)));
+		_lattice(side,side);
+
+		directory.mkdirs();
+		File file=new File(directory,name+".txt");
+		Node[] graph=_write(name,file);
+
+		if(graph.length<=MAX_TABLE_NODES)
+			DistanceTable.write(new File(directory,"d"+name+".bin"),graph.length,DistanceTable.build(graph));
+
+		return file;
+	}
+
+	/*
+	 * A random connected lattice of corridors with no dead ends.
+	 */
+	private void _lattice(int rows,int columns)
+	{
+		this.rows=rows;
+		this.columns=columns;
+		right=new boolean[rows*columns];
+		down=new boolean[rows*columns];
+
+		//spanning tree, by a depth-first walk with the neighbours in random order
+		boolean[] visited=new boolean[rows*columns];
+		int[] stack=new int[rows*columns];
+		int top=0;
+		stack[top++]=0;
+		visited[0]=true;
+
+		while(top>0)
+		{
+			int point=stack[top-1];
+			int[] next=_unvisited(point,visited);
+
+			if(next.length==0)
+			{
+				top--;
+				continue;
+			}
+
+			int neighbour=next[rng.nextInt(next.length)];
+			_open(point,neighbour);
+			visited[neighbour]=true;
+			stack[top++]=neighbour;
+		}
+
+		//no dead ends, then extra loops
+		for(int point=0;point<rows*columns;point++)
+			if(_degree(point)==1)
+				_openRandom(point);
+
+		for(int point=0;point<rows*columns;point++)
+			if(rng.nextDouble()<loops)
+				_openRandom(point);
+	}
+
+	/*
+	 * Opens one more corridor from a point, if it has any left to open.
+	 */
+	private void _openRandom(int point)
+	{
+		ArrayList<Integer> closed=new ArrayList<Integer>();
+		for(int neighbour : _latticeNeighbours(point))
+			if(!_isOpen(point,neighbour))
+				closed.add(neighbour);
+
+		if(!closed.isEmpty())
+			_open(point,closed.get(rng.nextInt(closed.size())));
+	}
+
+	private int[] _unvisited(int point,boolean[] visited)
+	{
+		int[] all=_latticeNeighbours(point);
+		int count=0;
+		for(int neighbour : all)
+			if(!visited[neighbour])
+				count++;
+
+		int[] result=new int[count];
+		count=0;
+		for(int neighbour : all)
+			if(!visited[neighbour])
+				result[count++]=neighbour;
+		return result;
+	}
+
+	private int[] _latticeNeighbours(int point)
+	{
+		int row=point/columns,column=point%columns;
+		int[] result=new int[4];
+		int count=0;
+
+		if(row>0)
+			result[count++]=point-columns;
+		if(column<columns-1)
+			result[count++]=point+1;
+		if(row<rows-1)
+			result[count++]=point+columns;
+		if(column>0)
+			result[count++]=point-1;
+
+		int[] trimmed=new int[count];
+		System.arraycopy(result,0,trimmed,0,count);
+		return trimmed;
+	}
+
+	private void _open(int a,int b)
+	{
+		int first=Math.min(a,b),second=Math.max(a,b);
+		if(second==first+1)
+			right[first]=true;
+		else
+			down[first]=true;
+	}
+
+	private boolean _isOpen(int a,int b)
+	{
+		int first=Math.min(a,b),second=Math.max(a,b);
+		return (second==first+1) ? right[first] : down[first];
+	}
+
+	private int _degree(int point)
+	{
+		int degree=0;
+		for(int neighbour : _latticeNeighbours(point))
+			if(_isOpen(point,neighbour))
+				degree++;
+		return degree;
+	}
+
+	/*
+	 * Nodes in the lattice as it is: its points, the inside of its open corridors, and the lair.
+	 */
+	private int _countNodes()
+	{
+		int open=0;
+		for(int point=0;point<rows*columns;point++)
+			open+=(right[point] ? 1 : 0)+(down[point] ? 1 : 0);
+
+		return rows*columns+open*(corridor-1)+1;
+	}
+
+	/*
+	 * Lays the lattice out on a grid of nodes, numbers them row by row as in the built-in mazes, and writes them.
+	 */
+	private Node[] _write(String name,File file) throws IOException
+	{
+		int width=(columns-1)*corridor+1,height=(rows-1)*corridor+1;
+		int[] grid=new int[width*height]; //node at x+y*width, or -1
+		for(int i=0;i<grid.length;i++)
+			grid[i]=-1;
+
+		for(int point=0;point<rows*columns;point++)
+		{
+			int x=(point%columns)*corridor,y=(point/columns)*corridor;
+			grid[x+y*width]=0;
+
+			for(int i=1;right[point] && i<corridor;i++)
+				grid[x+i+y*width]=0;
+			for(int i=1;down[point] && i<corridor;i++)
+				grid[x+(y+i)*width]=0;
+		}
+
+		int numNodes=0;
+		for(int i=0;i<grid.length;i++)
+			if(grid[i]==0)
+				grid[i]=numNodes++;
+
+		int lair=numNodes++;
+		int ghostStart=_nearestPoint(grid,width,width/2,height/2);
+		int pacManStart=_nearestPoint(grid,width,width/2,(3*height)/4);
+
+		//power pills at the corners first, then anywhere
+		int[][] targets={{0,0},{width-1,0},{0,height-1},{width-1,height-1}};
+		ArrayList<Integer> power=new ArrayList<Integer>();
+		for(int i=0;power.size()<powerPills && i<powerPills*10;i++)
+		{
+			int[] target=(i<targets.length) ? targets[i] : new int[]{rng.nextInt(width),rng.nextInt(height)};
+			int node=_nearestPoint(grid,width,target[0],target[1]);
+			if(node!=ghostStart && node!=pacManStart && !power.contains(node))
+				power.add(node);
+		}
+		Collections.sort(power); //numbered in node order, as Maze expects
+
+		//number the pills and junctions, and make the nodes
+		Node[] graph=new Node[numNodes];
+		StringBuilder lines=new StringBuilder();
+		int pills=0,junctions=0;
+
+		for(int y=0;y<height;y++)
+			for(int x=0;x<width;x++)
+			{
+				int node=grid[x+y*width];
+				if(node<0)
+					continue;
+
+				int[] neighbours={_at(grid,width,height,x,y-1),_at(grid,width,height,x+1,y),
+						_at(grid,width,height,x,y+1),_at(grid,width,height,x-1,y)};
+
+				int powerPill=power.indexOf(node);
+				int pill=-1;
+				if(powerPill<0 && node!=pacManStart && (x+y)%pillSpacing==0)
+					pill=pills++;
+
+				graph[node]=new Node(node,x,y,pill,powerPill,neighbours);
+				if(graph[node].numNeighbouringNodes>2)
+					junctions++;
+
+				lines.append(node+"\t"+x+"\t"+y+"\t"+neighbours[0]+"\t"+neighbours[1]+"\t"+neighbours[2]+"\t"+neighbours[3]
+						+"\t"+pill+"\t"+powerPill+"\n");
+			}
+
+		graph[lair]=new Node(lair,width/2,height/2,-1,-1,new int[]{-1,-1,-1,-1});
+		lines.append(lair+"\t"+(width/2)+"\t"+(height/2)+"\t-1\t-1\t-1\t-1\t-1\t-1\n");
+
+		PrintWriter out=new PrintWriter(new FileWriter(file));
+		try
+		{
+			out.print(name+"\t"+pacManStart+"\t"+lair+"\t"+ghostStart+"\t"+numNodes+"\t"+pills+"\t"+power.size()+"\t"+junctions+"\n");
+			out.print(lines);
+		}
+		finally
+		{
+			out.close();
+		}
+
+		return graph;
+	}
+
+	/*
+	 * The node at a place on the grid, or -1.
+	 */
+	private static int _at(int[] grid,int width,int height,int x,int y)
+	{
+		if(x<0 || y<0 || x>=width || y>=height)
+			return -1;
+		return grid[x+y*width];
+	}
+
+	/*
+	 * The lattice point nearest a place on the grid.
+	 */
+	private int _nearestPoint(int[] grid,int width,int x,int y)
+	{
+		int column=Math.min(columns-1,Math.max(0,Math.round((float)x/corridor)));
+		int row=Math.min(rows-1,Math.max(0,Math.round((float)y/corridor)));
+		return grid[column*corridor+row*corridor*width];
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length<2)
+		{
+			System.out.println("Usage: MazeGenerator name nodes [directory [seed [corridor [loops [pill spacing [power pills]]]]]]");
+			return;
+		}
+
+		String name=args[0];
+		int nodes=Integer.parseInt(args[1]);
+		File directory=new File((args.length>2) ? args[2] : "data/generated");
+		long seed=(args.length>3) ? Long.parseLong(args[3]) : 0;
+		int corridor=(args.length>4) ? Integer.parseInt(args[4]) : CORRIDOR;
+		double loops=(args.length>5) ? Double.parseDouble(args[5]) : LOOPS;
+		int pillSpacing=(args.length>6) ? Integer.parseInt(args[6]) : PILL_SPACING;
+		int powerPills=(args.length>7) ? Integer.parseInt(args[7]) : POWER_PILLS;
+
+		File file=new MazeGenerator(seed,corridor,loops,pillSpacing,powerPills).generate(name,nodes,directory);
+		Maze maze=new Maze(file,new File(directory,"d"+name));
+		System.out.println(file+": "+maze.graph.length+" nodes, "+maze.junctionIndices.length+" junctions, "
+				+maze.pillIndices.length+" pills, "+maze.powerPillIndices.length+" power pills");
+	}
+}
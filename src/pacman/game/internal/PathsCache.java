@@ -1,10 +1,7 @@
 package pacman.game.internal;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.Set;
+
 import pacman.game.Constants.MOVE;
 import pacman.game.Game;
 
@@ -16,467 +13,432 @@ import pacman.game.Game;
  * 	(a) find the nearest junction to the source (in the case of the ghosts, just follow the path): distance d_1
  *  (b) find the shortest distance to the one or two junctions closest to the target. This depends also on distance (d_3) from target junction to target: d_2
  *  (c) combine the three paths: d_1+d_2+d_3
- *  
+ *
  * In the case of Ms Pac-Man, it works as follows:
  *  (a) Looking at all combinations of 2-4 junctions, choosing the shortest path that also takes into account the path to get to either of them.
- *  
- * If one only wants the distance instead of the path, a more efficient method has been implemented that does not need to copy arrays.
+ *
+ * Everything is kept in flat int arrays: all the paths side by side in one pool, the paths from each node to its nearest
+ * junctions as entries of a few ints, the nearest junction for each node and last move, and the paths between junctions
+ * by junction and move. Distances allocate nothing. Paths can be copied into a buffer of the caller, which allocates
+ * nothing either, or returned as new arrays as before.
  */
-public class PathsCache 
+public class PathsCache
 {
-	public HashMap<Integer, Integer> junctionIndexConverter;
-	public DNode[] nodes;
-	public Junction[] junctions;
-	public Game game;
+	private static final MOVE[] MOVES=MOVE.values();
+	private static final int NEUTRAL=MOVE.NEUTRAL.ordinal();
+	private static final int[] OPPOSITE=new int[MOVES.length];
+	private static final int NONE=-1;
+	private static final int[] EMPTY={};
+
+	static
+	{
+		for(MOVE move : MOVES)
+			OPPOSITE[move.ordinal()]=move.opposite().ordinal();
+	}
+
+	//fields of an entry: a path from a node to one of its nearest junctions
+	private static final int JUNCTION=0;		//the junction node it leads to
+	private static final int ID=1;				//and its junction index
+	private static final int FIRST_MOVE=2;		//the move taken from the node
+	private static final int LAST_MOVE=3;		//the move that enters the junction (NEUTRAL at a junction)
+	private static final int PATH=4;			//offset of the path in the pool, without the node, with the junction
+	private static final int REVERSE=5;			//offset of the reverse path, from beside the junction back to the node
+	private static final int LENGTH=6;			//of both paths
+	private static final int TURN=7;			//the move from the junction onto the reverse path, or NONE
+	private static final int STRIDE=8;
+
+	private final int numJunctions;
+	private final int[] pool;					//all the paths
+	private final int[] entries;				//[entry*STRIDE+field]
+	private final int[] firstEntry;				//the entries of node n are firstEntry[n] to firstEntry[n+1]-1
+	private final int[] nearest;				//[node*5+lastMove]: the entry to follow without reversing, or NONE
+	private final int[] junctionPath;			//[(from*numJunctions+to)*5+move]: offset in the pool of the path from one
+	private final int[] junctionLength;			//junction to another leaving by a move (NEUTRAL: the shortest), and its
+												//length, or NONE if it cannot leave that way
 
  	public PathsCache(int mazeIndex)
 	{
-		junctionIndexConverter = new HashMap<Integer, Integer>();
-		
-		this.game=new Game(0,mazeIndex);
-		Maze m = game.getCurrentMaze();
-		
-		int[] jctIndices = m.junctionIndices;
-		
-		for (int i = 0; i < jctIndices.length; i++)
-			junctionIndexConverter.put(jctIndices[i], i);
-
-		nodes = assignJunctionsToNodes(game);
-		junctions = junctionDistances(game);
-		
-		for(int i=0;i<junctions.length;i++)
-			junctions[i].computeShortestPaths();
+		Game game=new Game(0,mazeIndex);
+		Maze m=game.getCurrentMaze();
+		int numNodes=m.graph.length;
+		int[] jctIndices=m.junctionIndices;
+		numJunctions=jctIndices.length;
+
+		int[] junctionIndexConverter=new int[numNodes];
+		Arrays.fill(junctionIndexConverter,NONE);
+		for(int i=0;i<jctIndices.length;i++)
+			junctionIndexConverter[jctIndices[i]]=i;
+
+		Pool paths=new Pool();
+
+		//the nearest junctions of every node
+		firstEntry=new int[numNodes+1];
+		int[] table=new int[numNodes*2*STRIDE];
+		int numEntries=0;
+
+		for(int i=0;i<numNodes;i++)
+		{
+			firstEntry[i]=numEntries;
+
+			if(game.isJunction(i))
+			{
+				table=_grow(table,numEntries);
+				_entry(table,numEntries++,i,junctionIndexConverter[i],NEUTRAL,NEUTRAL,paths.add(new int[]{}),paths.add(new int[]{}),0,NONE);
+				continue;
+			}
+
+			MOVE[] possibleMoves=m.graph[i].allPossibleMoves.get(MOVE.NEUTRAL);
+
+			for(int j=0;j<possibleMoves.length;j++)
+			{
+				int[] path=_pathToJunction(game,i,possibleMoves[j]);
+				int junction=path[path.length-1];
+
+				//back from beside the junction to the node
+				int[] reversePath=new int[path.length];
+				for(int k=1;k<reversePath.length;k++)
+					reversePath[k-1]=path[path.length-1-k];
+				reversePath[reversePath.length-1]=i;
+
+				MOVE turn=game.getMoveToMakeToReachDirectNeighbour(junction,reversePath[0]);
+
+				table=_grow(table,numEntries);
+				_entry(table,numEntries++,junction,junctionIndexConverter[junction],possibleMoves[j].ordinal(),
+						game.getMoveToMakeToReachDirectNeighbour(path.length>1 ? path[path.length-2] : i,junction).ordinal(),
+						paths.add(path),paths.add(reversePath),path.length,(turn!=null) ? turn.ordinal() : NONE);
+			}
+		}
+
+		firstEntry[numNodes]=numEntries;
+		entries=Arrays.copyOf(table,numEntries*STRIDE);
+
+		//the entry to follow from each node given the last move made, which must not be reversed
+		nearest=new int[numNodes*MOVES.length];
+		for(int i=0;i<numNodes;i++)
+			for(int move=0;move<MOVES.length;move++)
+			{
+				int found=NONE;
+				for(int e=firstEntry[i];e<firstEntry[i+1] && found==NONE;e++)
+					if(game.isJunction(i) || entries[e*STRIDE+FIRST_MOVE]!=OPPOSITE[move])
+						found=e;
+
+				nearest[i*MOVES.length+move]=found;
+			}
+
+		//the paths between junctions, for every way out of the first
+		junctionPath=new int[numJunctions*numJunctions*MOVES.length];
+		junctionLength=new int[junctionPath.length];
+		Arrays.fill(junctionPath,NONE);
+		Arrays.fill(junctionLength,NONE);
+
+		for(int q=0;q<numJunctions;q++)
+		{
+			MOVE[] possibleMoves=m.graph[jctIndices[q]].allPossibleMoves.get(MOVE.NEUTRAL);
+
+			for(int z=0;z<numJunctions;z++)
+			{
+				int slot=(q*numJunctions+z)*MOVES.length;
+
+				for(int i=0;i<possibleMoves.length;i++)
+				{
+					int neighbour=game.getNeighbour(jctIndices[q],possibleMoves[i]);
+					int[] p=m.astar.computePathsAStar(neighbour,jctIndices[z],possibleMoves[i],game);
+
+					junctionPath[slot+possibleMoves[i].ordinal()]=paths.add(p);
+					junctionLength[slot+possibleMoves[i].ordinal()]=p.length;
+				}
+
+				//the shortest, the first of equal ones in the order of the moves; none to itself
+				if(q==z)
+				{
+					junctionPath[slot+NEUTRAL]=paths.add(new int[]{});
+					junctionLength[slot+NEUTRAL]=0;
+				}
+				else
+				{
+					for(int move=0;move<NEUTRAL;move++)
+						if(junctionLength[slot+move]!=NONE && (junctionLength[slot+NEUTRAL]==NONE || junctionLength[slot+move]<junctionLength[slot+NEUTRAL]))
+						{
+							junctionPath[slot+NEUTRAL]=junctionPath[slot+move];
+							junctionLength[slot+NEUTRAL]=junctionLength[slot+move];
+						}
+				}
+			}
+		}
+
+		pool=paths.toArray();
 	}
 
 	//for Ms Pac-Man
 	public int[] getPathFromA2B(int a, int b)
+	{
+		int[] path=new int[getPathFromA2B(a,b,EMPTY)];
+		getPathFromA2B(a,b,path);
+		return path;
+	}
+
+	/*
+	 * The path for Ms Pac-Man copied into a buffer, if it is long enough. Returns the length of the path either way,
+	 * so that a caller with too short a buffer can grow it and ask again.
+	 */
+	public int getPathFromA2B(int a, int b, int[] buffer)
 	{
 		//not going anywhere
 		if(a==b)
-			return new int[]{};
-		
-		//junctions near the source
-		ArrayList<JunctionData> closestFromJunctions=nodes[a].closestJunctions;
-		
+			return 0;
+
 		//if target is on the way to junction, then we are done
-		for(int w=0; w<closestFromJunctions.size(); w++)
-			for (int i = 0; i < closestFromJunctions.get(w).path.length; i++)
-				if (closestFromJunctions.get(w).path[i] == b)
-					return Arrays.copyOf(closestFromJunctions.get(w).path, i + 1);
-		
-		//junctions near the target
-		ArrayList<JunctionData> closestToJunctions=nodes[b].closestJunctions;
-		
-		int minFrom=-1;
-		int minTo=-1;
+		for(int from=firstEntry[a];from<firstEntry[a+1];from++)
+		{
+			int on=_indexOnPath(from,b);
+			if(on!=NONE)
+				return _copy(buffer,0,entries[from*STRIDE+PATH],on+1);
+		}
+
+		//junctions near the source and near the target
+		int minFrom=NONE;
+		int minTo=NONE;
 		int minDistance=Integer.MAX_VALUE;
-		int[] shortestPath=null;
-		
-		for (int i = 0; i < closestFromJunctions.size(); i++) 
-		{			
-			for (int j = 0; j < closestToJunctions.size(); j++) 
+		int shortestPath=NONE;
+
+		for(int from=firstEntry[a];from<firstEntry[a+1];from++)
+		{
+			for(int to=firstEntry[b];to<firstEntry[b+1];to++)
 			{
-				//to the first junction
-				int distance=closestFromJunctions.get(i).path.length;
 				//junction to junction
-				int[] tmpPath=junctions[junctionIndexConverter.get(closestFromJunctions.get(i).nodeID)]
-						.paths[junctionIndexConverter.get(closestToJunctions.get(j).nodeID)].get(MOVE.NEUTRAL);
-				distance+=tmpPath.length;				
-				//to the second junction
-				distance+=closestToJunctions.get(j).path.length;
-			
+				int slot=(entries[from*STRIDE+ID]*numJunctions+entries[to*STRIDE+ID])*MOVES.length+NEUTRAL;
+				int distance=entries[from*STRIDE+LENGTH]+junctionLength[slot]+entries[to*STRIDE+LENGTH];
+
 				if(distance<minDistance)
 				{
 					minDistance=distance;
-					minFrom=i;
-					minTo=j;
-					shortestPath=tmpPath;
+					minFrom=from;
+					minTo=to;
+					shortestPath=slot;
 				}
 			}
 		}
-		
-		return concat(closestFromJunctions.get(minFrom).path, shortestPath, closestToJunctions.get(minTo).reversePath);
+
+		int length=_copy(buffer,0,entries[minFrom*STRIDE+PATH],entries[minFrom*STRIDE+LENGTH]);
+		length=_copy(buffer,length,junctionPath[shortestPath],junctionLength[shortestPath]);
+		return _copy(buffer,length,entries[minTo*STRIDE+REVERSE],entries[minTo*STRIDE+LENGTH]);
 	}
-	
+
 	public int getPathDistanceFromA2B(int a, int b, MOVE lastMoveMade)
 	{
 		//not going anywhere
 		if(a==b)
 			return 0;
 
-		//find nearest junction (there is only one since we can't reverse)
-
-		//first, go to closest junction
-		JunctionData fromJunction = nodes[a].getNearestJunction(lastMoveMade);
+		//first, go to closest junction (there is only one since we can't reverse)
+		int from=nearest[a*MOVES.length+lastMoveMade.ordinal()];
 
 		//if target is on the way to junction, then we are done
-		for (int i = 0; i < fromJunction.path.length; i++)
-			if (fromJunction.path[i] == b)
-				return i + 1;
-		
-		//we have reached a junction, fromJunction, which we entered with moveEnteredJunction
-		int junctionFrom = fromJunction.nodeID;
-		MOVE moveEnteredJunction = fromJunction.lastMove.equals(MOVE.NEUTRAL) ? lastMoveMade : fromJunction.lastMove; //if we are at a junction, consider last move instead
-		 
-		//now we need to get the 1 or 2 target junctions that enclose the target point
-		ArrayList<JunctionData> junctionsTo=nodes[b].closestJunctions;
-		
-		int minDist = Integer.MAX_VALUE;
-		int closestJunction = -1;		
-		
-		int junctionFromId = junctionIndexConverter.get(junctionFrom);
-	
-		for (int q = 0; q < junctionsTo.size(); q++) 
-		{
-			int junctionToId = junctionIndexConverter.get(junctionsTo.get(q).nodeID);
-			
-			//we are already on the right junction. If the target is in position so that no reversal is required, we are done
-			if(junctionFrom==junctionsTo.get(q).nodeID)
-			{
-				if(!game.getMoveToMakeToReachDirectNeighbour(junctionFrom, junctionsTo.get(q).reversePath[0]).equals(moveEnteredJunction.opposite()))
-				{
-					closestJunction = q;
-					minDist=junctionsTo.get(closestJunction).path.length;
-					break;
-				}
-			}
-				
-			EnumMap<MOVE, int[]> paths = junctions[junctionFromId].paths[junctionToId];				
-			Set<MOVE> set=paths.keySet();
-				
-			for (MOVE move : set) 
-			{
-				if (!move.opposite().equals(moveEnteredJunction) && !move.equals(MOVE.NEUTRAL)) 
-				{
-					int[] path = paths.get(move);
-					
-					if (path.length+junctionsTo.get(q).path.length < minDist)//need to take distance from toJunction to target into account
-					{
-						minDist = path.length+junctionsTo.get(q).path.length;
-						closestJunction = q;
-					}
-				}
-			}
-		}
-					
-		return fromJunction.path.length+minDist;
+		int on=_indexOnPath(from,b);
+		if(on!=NONE)
+			return on+1;
+
+		int to=_junctionTo(from,b,lastMoveMade);
+		int slot=_junctionSlot(from,to,lastMoveMade);
+
+		return entries[from*STRIDE+LENGTH]+((slot==NONE) ? 0 : junctionLength[slot])+entries[to*STRIDE+LENGTH];
 	}
-	
+
 	//for the ghosts
 	public int[] getPathFromA2B(int a, int b, MOVE lastMoveMade)
+	{
+		int[] path=new int[getPathFromA2B(a,b,lastMoveMade,EMPTY)];
+		getPathFromA2B(a,b,lastMoveMade,path);
+		return path;
+	}
+
+	/*
+	 * The path for a ghost copied into a buffer, if it is long enough. Returns the length of the path either way.
+	 */
+	public int getPathFromA2B(int a, int b, MOVE lastMoveMade, int[] buffer)
 	{
 		//not going anywhere
 		if(a==b)
-			return new int[]{};
-
-		//find nearest junction (there is only one since we can't reverse)
+			return 0;
 
-		//first, go to closest junction
-		JunctionData fromJunction = nodes[a].getNearestJunction(lastMoveMade);
-		
-		//if target is on the way to junction, then we are done
-		for (int i = 0; i < fromJunction.path.length; i++)
-			if (fromJunction.path[i] == b)
-				return Arrays.copyOf(fromJunction.path, i + 1);
-		
-		//we have reached a junction, fromJunction, which we entered with moveEnteredJunction
-		int junctionFrom = fromJunction.nodeID;
-		MOVE moveEnteredJunction = fromJunction.lastMove.equals(MOVE.NEUTRAL) ? lastMoveMade : fromJunction.lastMove; //if we are at a junction, consider last move instead
-		 
-		//now we need to get the 1 or 2 target junctions that enclose the target point
-		ArrayList<JunctionData> junctionsTo=nodes[b].closestJunctions;
-		
-		int[] shortestPath = null;
-		int minDist = Integer.MAX_VALUE;
-		int closestJunction = -1;		
-		
-		int junctionFromId = junctionIndexConverter.get(junctionFrom);
-	
-		for (int q = 0; q < junctionsTo.size(); q++) 
-		{
-			int junctionToId = junctionIndexConverter.get(junctionsTo.get(q).nodeID);
-			
-			//we are already on the right junction. If the target is in position so that no reversal is required, we are done
-			if(junctionFrom==junctionsTo.get(q).nodeID)
-			{
-				if(!game.getMoveToMakeToReachDirectNeighbour(junctionFrom, junctionsTo.get(q).reversePath[0]).equals(moveEnteredJunction.opposite()))
-				{
-					shortestPath = junctionsTo.get(q).reversePath;
-					closestJunction = q;
-					break;
-				}
-			}
-				
-			EnumMap<MOVE, int[]> paths = junctions[junctionFromId].paths[junctionToId];				
-			Set<MOVE> set=paths.keySet();
-				
-			for (MOVE move : set) 
-			{				
-				if (!move.opposite().equals(moveEnteredJunction) && !move.equals(MOVE.NEUTRAL)) 
-				{
-					int[] path = paths.get(move);
-					
-					if (path.length+junctionsTo.get(q).path.length < minDist)//need to take distance from toJunction to target into account
-					{
-						minDist = path.length+junctionsTo.get(q).path.length;
-						shortestPath = path;
-						closestJunction = q;
-					}
-				}
-			}
-		}
-					
-		return concat(fromJunction.path, shortestPath, junctionsTo.get(closestJunction).reversePath);
-	}
+		int from=nearest[a*MOVES.length+lastMoveMade.ordinal()];
 
-	private Junction[] junctionDistances(Game game)
-	{
-		Maze m = game.getCurrentMaze();
-		int[] indices = m.junctionIndices;
+		int on=_indexOnPath(from,b);
+		if(on!=NONE)
+			return _copy(buffer,0,entries[from*STRIDE+PATH],on+1);
 
-		Junction[] junctions = new Junction[indices.length];
+		int to=_junctionTo(from,b,lastMoveMade);
+		int slot=_junctionSlot(from,to,lastMoveMade);
 
-		for (int q = 0; q < indices.length; q++)// from
-		{
-			MOVE[] possibleMoves = m.graph[indices[q]].allPossibleMoves.get(MOVE.NEUTRAL);// all possible moves
+		int length=_copy(buffer,0,entries[from*STRIDE+PATH],entries[from*STRIDE+LENGTH]);
+		if(slot!=NONE)
+			length=_copy(buffer,length,junctionPath[slot],junctionLength[slot]);
+		return _copy(buffer,length,entries[to*STRIDE+REVERSE],entries[to*STRIDE+LENGTH]);
+	}
 
-			junctions[q] = new Junction(q, indices[q], indices.length);
+	/*
+	 * Where a node lies on the path of an entry, or NONE. Only one corridor enters a junction by a given move, so
+	 * the node is on the path if it is the junction, or if it is on that corridor and nearer the junction.
+	 */
+	private int _indexOnPath(int entry,int node)
+	{
+		int junction=entries[entry*STRIDE+JUNCTION];
+		int length=entries[entry*STRIDE+LENGTH];
 
-			for (int z = 0; z < indices.length; z++)// to (we need to include distance to itself)
-			{
-				for (int i = 0; i < possibleMoves.length; i++) 
-				{
-					int neighbour = game.getNeighbour(indices[q],possibleMoves[i]);
-					int[] p = m.astar.computePathsAStar(neighbour,indices[z], possibleMoves[i], game);
-					m.astar.resetGraph();
+		if(length==0)
+			return NONE;
+		if(node==junction)
+			return length-1;
 
-					junctions[q].addPath(z, possibleMoves[i], p);
-				}
-			}
-		}
+		for(int e=firstEntry[node];e<firstEntry[node+1];e++)
+			if(entries[e*STRIDE+JUNCTION]==junction && entries[e*STRIDE+LAST_MOVE]==entries[entry*STRIDE+LAST_MOVE]
+					&& entries[e*STRIDE+LENGTH]<length)
+				return length-entries[e*STRIDE+LENGTH]-1;
 
-		return junctions;
+		return NONE;
 	}
 
-	private DNode[] assignJunctionsToNodes(Game game)
+	/*
+	 * Of the one or two junctions that enclose the target, the one to head for from the junction reached by an
+	 * entry, entered by its last move (or the last move made, if the source is that junction).
+	 */
+	private int _junctionTo(int from,int b,MOVE lastMoveMade)
 	{
-		Maze m = game.getCurrentMaze();
-		int numNodes = m.graph.length;
+		int junctionFrom=entries[from*STRIDE+JUNCTION];
+		int fromId=entries[from*STRIDE+ID];
+		int entered=(entries[from*STRIDE+LAST_MOVE]==NEUTRAL) ? lastMoveMade.ordinal() : entries[from*STRIDE+LAST_MOVE];
 
-		DNode[] allNodes = new DNode[numNodes];
+		int minDist=Integer.MAX_VALUE;
+		int closest=NONE;
 
-		for (int i = 0; i < numNodes; i++) 
+		for(int to=firstEntry[b];to<firstEntry[b+1];to++)
 		{
-			boolean isJunction=game.isJunction(i);
-			allNodes[i] = new DNode(i,isJunction);
+			//we are already on the right junction. If the target is in position so that no reversal is required, we are done
+			if(junctionFrom==entries[to*STRIDE+JUNCTION] && entries[to*STRIDE+TURN]!=OPPOSITE[entered])
+				return to;
 
-			if(!isJunction)
-			{
-				MOVE[] possibleMoves = m.graph[i].allPossibleMoves.get(MOVE.NEUTRAL);
-	
-				for (int j = 0; j < possibleMoves.length; j++) 
+			int slot=(fromId*numJunctions+entries[to*STRIDE+ID])*MOVES.length;
+
+			for(int move=0;move<NEUTRAL;move++)
+				if(junctionLength[slot+move]!=NONE && OPPOSITE[move]!=entered)
 				{
-					ArrayList<Integer> path = new ArrayList<Integer>();
-	
-					MOVE lastMove = possibleMoves[j];
-					int currentNode = game.getNeighbour(i, lastMove);
-					path.add(currentNode);
-	
-					while (!game.isJunction(currentNode)) 
+					//need to take distance from toJunction to target into account
+					int distance=junctionLength[slot+move]+entries[to*STRIDE+LENGTH];
+					if(distance<minDist)
 					{
-						MOVE[] newPossibleMoves = game.getPossibleMoves(currentNode);
-	
-						for (int q = 0; q < newPossibleMoves.length; q++)
-							if (newPossibleMoves[q].opposite() != lastMove) 
-							{
-								lastMove = newPossibleMoves[q];
-								break;
-							}
-	
-						currentNode = game.getNeighbour(currentNode, lastMove);
-						path.add(currentNode);
+						minDist=distance;
+						closest=to;
 					}
-	
-					int[] array = new int[path.size()];
-					
-					for (int w = 0; w < path.size(); w++)
-						array[w] = path.get(w);
-	
-					allNodes[i].addPath(array[array.length - 1], possibleMoves[j], i, array, lastMove);
 				}
-			}
 		}
 
-		return allNodes;
+		return closest;
 	}
-	
-	private int[] concat(int[]... arrays) 
-	{
-		int totalLength = 0;
 
-		for (int i = 0; i < arrays.length; i++)
-			totalLength += arrays[i].length;
+	/*
+	 * The path between the junctions of two entries, leaving the first without reversing, or NONE if the second
+	 * junction is the first and the target lies ahead.
+	 */
+	private int _junctionSlot(int from,int to,MOVE lastMoveMade)
+	{
+		int entered=(entries[from*STRIDE+LAST_MOVE]==NEUTRAL) ? lastMoveMade.ordinal() : entries[from*STRIDE+LAST_MOVE];
 
-		int[] fullArray = new int[totalLength];
+		if(entries[from*STRIDE+JUNCTION]==entries[to*STRIDE+JUNCTION] && entries[to*STRIDE+TURN]!=OPPOSITE[entered])
+			return NONE;
 
-		int index = 0;
+		int slot=(entries[from*STRIDE+ID]*numJunctions+entries[to*STRIDE+ID])*MOVES.length;
+		int best=NONE;
 
-		for (int i = 0; i < arrays.length; i++)
-			for (int j = 0; j < arrays[i].length; j++)
-				fullArray[index++] = arrays[i][j];
+		for(int move=0;move<NEUTRAL;move++)
+			if(junctionLength[slot+move]!=NONE && OPPOSITE[move]!=entered
+					&& (best==NONE || junctionLength[slot+move]<junctionLength[best]))
+				best=slot+move;
 
-		return fullArray;
+		return best;
 	}
-}
-
-class JunctionData 
-{
-	public int nodeID,nodeStartedFrom;
-	public MOVE firstMove, lastMove;
-	public int[] path, reversePath;
 
-	public JunctionData(int nodeID, MOVE firstMove, int nodeStartedFrom, int[] path, MOVE lastMove) 
+	/*
+	 * Copies part of the pool into a buffer at some position, if it fits, and returns the position after it.
+	 */
+	private int _copy(int[] buffer,int at,int offset,int length)
 	{
-		this.nodeID = nodeID;
-		this.nodeStartedFrom=nodeStartedFrom;
-		this.firstMove = firstMove;
-		this.path = path;
-		this.lastMove = lastMove;
-		
-		if(path.length>0)
-			this.reversePath = getReversePath(path);
-		else
-			reversePath=new int[]{};
+		if(at+length<=buffer.length)
+			System.arraycopy(pool,offset,buffer,at,length);
+
+		return at+length;
 	}
 
-	public int[] getReversePath(int[] path) 
+	/*
+	 * The nodes from a non-junction node to the junction reached by leaving it with a move, without the node.
+	 */
+	private static int[] _pathToJunction(Game game,int node,MOVE move)
 	{
-		int[] reversePath = new int[path.length];
+		int[] path=new int[8];
+		int length=0;
 
-		for (int i = 1; i < reversePath.length; i++)
-			reversePath[i-1] = path[path.length - 1 - i];
+		MOVE lastMove=move;
+		int currentNode=game.getNeighbour(node,lastMove);
+		path[length++]=currentNode;
 
-		reversePath[reversePath.length-1]=nodeStartedFrom;
-				
-		return reversePath;
-	}
+		while(!game.isJunction(currentNode))
+		{
+			MOVE[] newPossibleMoves=game.getPossibleMoves(currentNode);
 
-	public String toString() 
-	{
-		return nodeID + "\t" + firstMove.toString() + "\t" + Arrays.toString(path);
-	}
-}
+			for(int q=0;q<newPossibleMoves.length;q++)
+				if(newPossibleMoves[q].opposite()!=lastMove)
+				{
+					lastMove=newPossibleMoves[q];
+					break;
+				}
 
-class DNode 
-{
-	public int nodeID;
-	public ArrayList<JunctionData> closestJunctions;
-	public boolean isJunction;
-	
-	public DNode(int nodeID, boolean isJunction) 
-	{
-		this.nodeID = nodeID;
-		this.isJunction=isJunction;
-		
-		this.closestJunctions = new ArrayList<JunctionData>();
-		
-		if(isJunction)
-			closestJunctions.add(new JunctionData(nodeID,MOVE.NEUTRAL,nodeID,new int[]{},MOVE.NEUTRAL));
-	}
+			currentNode=game.getNeighbour(currentNode,lastMove);
+			if(length==path.length)
+				path=Arrays.copyOf(path,length*2);
+			path[length++]=currentNode;
+		}
 
-	public int[] getPathToJunction(MOVE lastMoveMade) 
-	{
-		if(isJunction)
-			return new int[]{};
-		
-		for (int i = 0; i < closestJunctions.size(); i++)
-			if (!closestJunctions.get(i).firstMove.equals(lastMoveMade.opposite()))
-				return closestJunctions.get(i).path;
-
-		return null;
+		return Arrays.copyOf(path,length);
 	}
 
-	public JunctionData getNearestJunction(MOVE lastMoveMade) 
+	private static void _entry(int[] table,int entry,int junction,int id,int firstMove,int lastMove,int path,int reverse,int length,int turn)
 	{
-		if(isJunction)
-			return closestJunctions.get(0);
-		
-		for (int i = 0; i < closestJunctions.size(); i++)
-			if (!closestJunctions.get(i).firstMove.equals(lastMoveMade.opposite()))
-				return closestJunctions.get(i);
-
-		return null;
+		int base=entry*STRIDE;
+		table[base+JUNCTION]=junction;
+		table[base+ID]=id;
+		table[base+FIRST_MOVE]=firstMove;
+		table[base+LAST_MOVE]=lastMove;
+		table[base+PATH]=path;
+		table[base+REVERSE]=reverse;
+		table[base+LENGTH]=length;
+		table[base+TURN]=turn;
 	}
 
-	public void addPath(int junctionID, MOVE firstMove, int nodeStartedFrom,int[] path, MOVE lastMove) 
+	private static int[] _grow(int[] table,int numEntries)
 	{
-		closestJunctions.add(new JunctionData(junctionID, firstMove, nodeStartedFrom,path, lastMove));
+		return ((numEntries+1)*STRIDE<=table.length) ? table : Arrays.copyOf(table,table.length*2);
 	}
 
-	public String toString() 
+	/*
+	 * All the paths, appended one after another while the cache is built.
+	 */
+	private static final class Pool
 	{
-		return "" + nodeID;
-	}
-}
+		private int[] values=new int[1024];
+		private int size;
 
-// for each junction, stores paths to all other junctions for all directions
-class Junction 
-{
-	public int jctId, nodeId;
-	public EnumMap<MOVE, int[]>[] paths;
-
-	public void computeShortestPaths()
-	{
-		MOVE[] moves=MOVE.values();
-		
-		for(int i=0;i<paths.length;i++)
+		int add(int[] path)
 		{
-			if(i==jctId)
-				paths[i].put(MOVE.NEUTRAL,new int[]{});
-			else
-			{
-				int distance=Integer.MAX_VALUE;
-				int[] path=null;
-				
-				for(int j=0;j<moves.length;j++)
-				{
-					if(paths[i].containsKey(moves[j]))
-					{
-						int[] tmp=paths[i].get(moves[j]);
-					
-						if(tmp.length<distance)
-						{
-							distance=tmp.length;
-							path=tmp;
-						}
-					}
-				}
-				
-				paths[i].put(MOVE.NEUTRAL,path);
-			}
-		}
-	}
-	
-	@SuppressWarnings("unchecked")
-	public Junction(int jctId, int nodeId, int numJcts) 
-	{
-		this.jctId = jctId;
-		this.nodeId = nodeId;
+			if(size+path.length>values.length)
+				values=Arrays.copyOf(values,Math.max(values.length*2,size+path.length));
 
-		paths = new EnumMap[numJcts];
-
-		for (int i = 0; i < paths.length; i++)
-			paths[i] = new EnumMap<MOVE, int[]>(MOVE.class);
-	}
-
-	// store the shortest path given the last move made
-	public void addPath(int toJunction, MOVE firstMoveMade, int[] path) 
-	{		
-		paths[toJunction].put(firstMoveMade, path);
-	}
+			System.arraycopy(path,0,values,size,path.length);
+			size+=path.length;
+			return size-path.length;
+		}
 
-	public String toString() 
-	{
-		return jctId + "\t" + nodeId;
+		int[] toArray()
+		{
+			return Arrays.copyOf(values,size);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 package pacman.teaching;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 
@@ -8,11 +7,13 @@ import pacman.game.Constants.MOVE;
  * Gives a fixed amount of front-loaded advice.
  */
 public class AdviseAtFirst extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	
-	public AdviseAtFirst() {
-		left = Experiments.BUDGET;
+	public AdviseAtFirst(int budget) {
+		left = budget;
 	}
 
 	/** When there's some left. */
@@ -25,6 +26,16 @@ public class AdviseAtFirst extends TeachingStrategy {
 	public boolean inUse() {
 		return (left > 0);
 	}
+	
+	/** Advice still to give. */
+	public int budgetLeft() {
+		return left;
+	}
+	
+	/** Give less advice. */
+	public void cutBudget(int advice) {
+		left -= advice;
+	}
 
 	@Override
 	public boolean lastActionCorrect() {
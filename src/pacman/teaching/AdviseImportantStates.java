@@ -2,7 +2,6 @@ package pacman.teaching;
 
 import java.io.IOException;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -11,12 +10,14 @@ import pacman.utils.Stats;
  * Gives a fixed amount of advice in important states.
  */
 public class AdviseImportantStates extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private int threshold; // Of action importance
 	
-	public AdviseImportantStates(int t) {
-		left = Experiments.BUDGET;
+	public AdviseImportantStates(int t, int budget) {
+		left = budget;
 		threshold = t;
 	}
 
@@ -2,7 +2,6 @@ package pacman.teaching;
 
 import java.util.Random;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -11,19 +10,21 @@ import pacman.utils.Stats;
  * Gives a fixed amount of advice in important states.
  */
 public class AdviseRandom extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private double adviceProbability; // Of random intervention
+	private Random rng = new Random(); // Whether to intervene
 	
-	public AdviseRandom(int t) {
-		left = Experiments.BUDGET;
+	public AdviseRandom(int t, int budget) {
+		left = budget;
 		adviceProbability = t/100.0;
 	}
 
 	/** random decision. */
 	public boolean giveAdvice(BasicRLPacMan teacher, MOVE _choice, MOVE _advice) {
-		Random rand = new Random();
-		double value = rand.nextDouble();
+		double value = rng.nextDouble();
 
 		if (value<adviceProbability) {
 			left--;
@@ -33,6 +34,11 @@ public class AdviseRandom extends TeachingStrategy {
 		return false;
 	}
 	
+	/** Restart the random interventions from a seed. */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
+	
 	/** Until none left. */
 	public boolean inUse() {
 		return (left > 0);
@@ -1,6 +1,5 @@
 package pacman.teaching;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 
@@ -8,11 +7,13 @@ import pacman.game.Constants.MOVE;
  * Gives a fixed amount of front-loaded advice.
  */
 public class AlwaysAdviseWhenAsked extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	
-	public AlwaysAdviseWhenAsked() {
-		left = Experiments.BUDGET;
+	public AlwaysAdviseWhenAsked(int budget) {
+		left = budget;
 	}
 
 	/** When there's some left. */
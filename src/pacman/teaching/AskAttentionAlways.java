@@ -7,6 +7,8 @@ import pacman.utils.Stats;
 
 public class AskAttentionAlways extends AttentionStrategy{
 
+	private static final long serialVersionUID = 1L;
+
 	private int left; // Advice to give
 	private int threshold; // Of action uncertainty
 	
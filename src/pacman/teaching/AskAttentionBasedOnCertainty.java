@@ -7,6 +7,8 @@ import pacman.utils.Stats;
 
 public class AskAttentionBasedOnCertainty extends AttentionStrategy{
 
+	private static final long serialVersionUID = 1L;
+
 	private int left; // Advice to give
 	private int threshold; // Of action uncertainty
 	
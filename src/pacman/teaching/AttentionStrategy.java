@@ -1,12 +1,16 @@
 package pacman.teaching;
 
+import java.io.Serializable;
+
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 
 /**
  * Determines whether advice is given.
  */
-public abstract class AttentionStrategy {
+public abstract class AttentionStrategy implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 	
 	public abstract boolean askForAdvice(IntelligentStudent student);
 	public abstract boolean inUse();
@@ -1,6 +1,5 @@
 package pacman.teaching;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -9,14 +8,16 @@ import pacman.utils.Stats;
  * Gives a fixed amount of advice in important states where the student makes a mistake.
  */
 public class CorrectImportantMistakes extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private int threshold; // Of mistake importance
 	private boolean stateImportant;
 	private boolean  lastStudentActionCorrect;
 		
-	public CorrectImportantMistakes(int t) {
-		left = Experiments.BUDGET;
+	public CorrectImportantMistakes(int t, int budget) {
+		left = budget;
 		threshold = t;
 		stateImportant = false;
 		lastStudentActionCorrect = false;
@@ -1,6 +1,7 @@
 package pacman.teaching;
 
-import pacman.Experiments;
+import java.util.Random;
+
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -9,14 +10,17 @@ import pacman.utils.Stats;
  * Gives a fixed amount of advice in important states where the student makes a mistake.
  */
 public class CorrectImportantMistakesAttention extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private double attention; // Of mistake importance
 	private int threshold = 200;
 	private boolean  lastStudentActionCorrect;
+	private Random rng = new Random(); // Whether the teacher pays attention
 		
-	public CorrectImportantMistakesAttention(int att, int t) {
-		left = Experiments.BUDGET;
+	public CorrectImportantMistakesAttention(int att, int t, int budget) {
+		left = budget;
 		attention = att/100.0;
 		threshold = t;
 		lastStudentActionCorrect = false;
@@ -25,7 +29,7 @@ public class CorrectImportantMistakesAttention extends TeachingStrategy {
 	/** When the state has widely varying Q-values, and the student doesn't take the advice action. */
 	public boolean giveAdvice(BasicRLPacMan teacher, MOVE choice, MOVE advice) {
 		
-		if (attention<Math.random())
+		if (attention<rng.nextDouble())
 			return false;
 		
 		double[] qvalues = teacher.getQValues();
@@ -48,6 +52,11 @@ public class CorrectImportantMistakesAttention extends TeachingStrategy {
 		return false;
 	}
 	
+	/** Restart the random attention from a seed. */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
+	
 	/** Until none left. */
 	public boolean inUse() {
 		return (left > 0);
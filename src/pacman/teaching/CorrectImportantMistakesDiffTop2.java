@@ -2,7 +2,6 @@ package pacman.teaching;
 
 import java.util.Map;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -11,13 +10,15 @@ import pacman.utils.Stats;
  * Gives a fixed amount of advice in important states where the student makes a mistake.
  */
 public class CorrectImportantMistakesDiffTop2 extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private int threshold; // Of mistake importance
 	private boolean  lastStudentActionCorrect;
 		
-	public CorrectImportantMistakesDiffTop2(int t) {
-		left = Experiments.BUDGET;
+	public CorrectImportantMistakesDiffTop2(int t, int budget) {
+		left = budget;
 		threshold = t;
 		lastStudentActionCorrect = false;
 	}
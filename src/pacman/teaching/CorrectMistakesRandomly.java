@@ -2,7 +2,6 @@ package pacman.teaching;
 
 import java.util.Random;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -11,21 +10,23 @@ import pacman.utils.Stats;
  * Gives a fixed amount of advice in important states where the student makes a mistake.
  */
 public class CorrectMistakesRandomly extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private double correctProb; // Of mistake importance
 	private boolean  lastStudentActionCorrect;
+	private Random rng = new Random(); // Whether to intervene
 	
-	public CorrectMistakesRandomly(int t) {
-		left = Experiments.BUDGET;
+	public CorrectMistakesRandomly(int t, int budget) {
+		left = budget;
 		correctProb = t/100.0;
 		lastStudentActionCorrect= false;
 	}
 
 	/** When the state has widely varying Q-values, and the student doesn't take the advice action. */
 	public boolean giveAdvice(BasicRLPacMan teacher, MOVE choice, MOVE advice) {
-		Random rand = new Random();
-		double value = rand.nextDouble();
+		double value = rng.nextDouble();
 		
 		if (value<correctProb) {
 		
@@ -43,6 +44,11 @@ public class CorrectMistakesRandomly extends TeachingStrategy {
 		return false;
 	}
 	
+	/** Restart the random interventions from a seed. */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
+	
 	/** Until none left. */
 	public boolean inUse() {
 		return (left > 0);
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Random;
 import java.sql.Timestamp;
 import pacman.Experiments;
 import pacman.controllers.KeyBoardInput;
@@ -19,6 +20,7 @@ import pacman.game.Game;
 import pacman.utils.DataFile;
 import pacman.utils.FeatureVectorComparator;
 import pacman.utils.SVM;
+import pacman.utils.Seeds;
 import pacman.utils.Stats;
 
 /**
@@ -26,6 +28,8 @@ import pacman.utils.Stats;
  */
 public class IntelligentStudent extends RLPacMan {
 
+	private static final long serialVersionUID = 1L;
+
 	private BasicRLPacMan teacher; // Gives advice
 	private BasicRLPacMan student; // Takes advice
 	private TeachingStrategy strategy; // Determines when advice is given
@@ -69,6 +73,7 @@ public class IntelligentStudent extends RLPacMan {
 	private double avgQdiffFromPast = 0;
 	
 	private int totalAttention = 0;
+	private Random attentionRng = new Random(); // Whether to ask for attention at random
 	
 	
 	public IntelligentStudent(BasicRLPacMan teacher, BasicRLPacMan student, TeachingStrategy strategy, String initiator) {
@@ -253,7 +258,7 @@ public class IntelligentStudent extends RLPacMan {
 	private boolean randomAtt(double threshold)
 	{
 		
-		double rand = Math.random();
+		double rand = attentionRng.nextDouble();
 		if (rand<(threshold/100))
 		{
 			return true;
@@ -580,16 +585,40 @@ public class IntelligentStudent extends RLPacMan {
 	
 	/** Prepare for the next move. */
 	public void processStep(Game game) {
-		student.processStep(game);
+		processStep(game, 1);
+	}
+
+	/** Prepare for the next move, after a step of several ticks. */
+	public void processStep(Game game, int ticks) {
+		student.processStep(game, ticks);
 		
 		if (!testMode && strategy.inUse())
-			teacher.processStep(game);
+			teacher.processStep(game, ticks);
 	}
 	
 	/** Save the current policy to a file. */
 	public void savePolicy(String filename) {
 		student.savePolicy(filename);
 	}
+	
+	/** Seed the student's exploration and random attention, and the teacher's and the strategy's from the teacher's stream. */
+	public void setSeed(long seed) {
+		long teacherSeed = Seeds.split(seed, Seeds.TEACHER);
+		student.setSeed(seed);
+		attentionRng.setSeed(Seeds.split(seed, Seeds.ATTENTION));
+		teacher.setSeed(teacherSeed);
+		strategy.setSeed(Seeds.split(teacherSeed, Seeds.TEACHER)); // Split again, so it does not echo the teacher
+	}
+	
+	/** Determines when advice is given. */
+	public TeachingStrategy getStrategy() {
+		return strategy;
+	}
+	
+	/** Test mode plays the student's policy without advice. */
+	public BasicRLPacMan getPolicyLearner() {
+		return student;
+	}
 
 
 	
@@ -14,6 +14,8 @@ import pacman.utils.Stats;
  */
 public class PredictImportantMistakes extends TeachingStrategy {
 
+	private static final long serialVersionUID = 1L;
+
 	private int left; // Advice to give
 	private int threshold; // Of mistake importance
 	private int episode; // Of training
@@ -22,8 +24,8 @@ public class PredictImportantMistakes extends TeachingStrategy {
 	private String trainFile, modelFile, testFile, classifyFile; // SVM filenames
 	private int right, wrong, truePos, falseNeg, falsePos; // In SVM predictions during the last episode
 
-	public PredictImportantMistakes(int t) {
-		left = Experiments.BUDGET;
+	public PredictImportantMistakes(int t, int budget) {
+		left = budget;
 		threshold = t;
 		
 		trainFile = Experiments.DIR+"/predict"+threshold+"/train";
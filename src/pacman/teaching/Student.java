@@ -15,6 +15,8 @@ import pacman.game.Constants.MOVE;
  */
 public class Student extends RLPacMan {
 
+	private static final long serialVersionUID = 1L;
+
 	private BasicRLPacMan teacher; // Gives advice
 	private BasicRLPacMan student; // Takes advice
 	private TeachingStrategy strategy; // Determines when advice is given
@@ -132,10 +134,15 @@ public class Student extends RLPacMan {
 	
 	/** Prepare for the next move. */
 	public void processStep(Game game) {
-		student.processStep(game);
+		processStep(game, 1);
+	}
+
+	/** Prepare for the next move, after a step of several ticks. */
+	public void processStep(Game game, int ticks) {
+		student.processStep(game, ticks);
 		
 		if (!testMode && strategy.inUse())
-			teacher.processStep(game);
+			teacher.processStep(game, ticks);
 	}
 	
 	/** Save the current policy to a file. */
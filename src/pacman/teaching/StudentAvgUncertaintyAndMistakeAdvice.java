@@ -1,6 +1,5 @@
 package pacman.teaching;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -9,12 +8,14 @@ import pacman.utils.Stats;
  * Asks for a fixed amount of advice in uncertain states.
  */
 public class StudentAvgUncertaintyAndMistakeAdvice extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private boolean lastStudentActionCorrect;
 	
-	public StudentAvgUncertaintyAndMistakeAdvice() {
-		left = Experiments.BUDGET;
+	public StudentAvgUncertaintyAndMistakeAdvice(int budget) {
+		left = budget;
 		lastStudentActionCorrect = false;
 	}
 
@@ -1,6 +1,5 @@
 package pacman.teaching;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -9,13 +8,15 @@ import pacman.utils.Stats;
  * Asks for a fixed amount of advice in uncertain states.
  */
 public class StudentImportanceAndMistakeAdvice extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private int threshold; // Of state importantce
 	private boolean lastStudentActionCorrect;
 	
-	public StudentImportanceAndMistakeAdvice(int t) {
-		left = Experiments.BUDGET;
+	public StudentImportanceAndMistakeAdvice(int t, int budget) {
+		left = budget;
 		threshold = t;
 		lastStudentActionCorrect=false;
 	}
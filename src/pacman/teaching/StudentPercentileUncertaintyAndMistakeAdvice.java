@@ -1,6 +1,5 @@
 package pacman.teaching;
 
-import pacman.Experiments;
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 import pacman.utils.Stats;
@@ -9,13 +8,15 @@ import pacman.utils.Stats;
  * Asks for a fixed amount of advice in uncertain states.
  */
 public class StudentPercentileUncertaintyAndMistakeAdvice extends TeachingStrategy {
+
+	private static final long serialVersionUID = 1L;
 	
 	private int left; // Advice to give
 	private int cutoff;
 	private boolean lastStudentActionCorrect;
 	
-	public StudentPercentileUncertaintyAndMistakeAdvice(int c) {
-		left = Experiments.BUDGET;
+	public StudentPercentileUncertaintyAndMistakeAdvice(int c, int budget) {
+		left = budget;
 		cutoff = c;
 		lastStudentActionCorrect=false;
 	}
@@ -1,12 +1,16 @@
 package pacman.teaching;
 
+import java.io.Serializable;
+
 import pacman.entries.pacman.BasicRLPacMan;
 import pacman.game.Constants.MOVE;
 
 /**
  * Determines whether advice is given.
  */
-public abstract class TeachingStrategy {
+public abstract class TeachingStrategy implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 	
 	public abstract boolean giveAdvice(BasicRLPacMan teacher, MOVE choice, MOVE advice);
 	public abstract boolean inUse();
@@ -14,6 +18,14 @@ public abstract class TeachingStrategy {
 	public abstract boolean lastStateImporant();
 	
 	public void startEpisode() {} // Override to do start-of-episode stuff
+	
+	public void setSeed(long seed) {} // Override to make random advice reproducible
+	
+	public int budgetLeft() { // Override for strategies with an advice budget
+		return -1;
+	}
+	
+	public void cutBudget(int advice) {} // Override for strategies with an advice budget
 		
 	public double[] episodeData() { // Override to add data to learning curves
 		double[] data = new double[0];
@@ -1,10 +1,13 @@
 package pacman.utils;
 
+import java.io.Serializable;
 
 /**
  * Represents a curve showing agent performance against episodes trained.
  */
-public class LearningCurve {
+public class LearningCurve implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	public final int length; // Total points
 	public final int width; // Episodes per point
@@ -60,10 +63,28 @@ public class LearningCurve {
 //		System.out.println("score = "+this.score[x]+"\t data0 = "+this.data[x][0]+"\t data1 = "+this.data[x][1]+"\t data2 = "+this.data[x][2]);
 	}
 
+	/** Fill skipped points (NaN scores) by linear interpolation between the measured points around them. */
+	public void interpolate(int points) {
+		int last = -1; // Last measured point
+		for (int x=0; x<points; x++) {
+			if (Double.isNaN(score[x]))
+				continue;
+			
+			for (int gap=last+1; last>=0 && gap<x; gap++)
+				score[gap] = score[last] + (score[x]-score[last]) * (gap-last) / (x-last);
+			last = x;
+		}
+	}
+
 	/** Compute area under the score curve. */
 	public double area() {
+		return area(length);
+	}
+
+	/** Compute area under the first points of the score curve. */
+	public double area(int points) {
 		double area = 0;
-		for (int x=0; x<length; x++)
+		for (int x=0; x<points; x++)
 			area += score[x];
 		return area;
 	}
@@ -0,0 +1,23 @@
+package pacman.utils;
+
+/**
+ * Splits one seed into independent seeds for the random parts of an experiment,
+ * so that each part can be replayed on its own.
+ */
+public class Seeds {
+
+	// Streams split from a repeat or an episode seed
+	public static final int GAMES = 0;
+	public static final int GHOSTS = 1;
+	public static final int EXPLORATION = 2;
+	public static final int TEACHER = 3;
+	public static final int ATTENTION = 4;
+
+	/** Derive the seed of one stream from a parent seed (SplitMix64 mixing). */
+	public static long split(long seed, int stream) {
+		long z = seed + (stream+1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -1,9 +1,14 @@
 package pacman.utils;
 
+import java.io.Serializable;
+
 import pacman.entries.pacman.FeatureSet;
 import pacman.game.Constants.MOVE;
 
-public class StateActionInfo {
+public class StateActionInfo implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	@Override
 	public String toString() {
 		return act + "\t" + vec + "\t" + qval;
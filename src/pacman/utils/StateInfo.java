@@ -1,8 +1,12 @@
 package pacman.utils;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 
-public class StateInfo {
+public class StateInfo implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	private ArrayList<StateActionInfo> stateActionPairs;
 	private int time;
 	private double varQ;
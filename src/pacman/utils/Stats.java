@@ -41,6 +41,110 @@ public class Stats {
 		return Math.pow(term1+term2, 2) / (term1*term1/(n1-1) + term2*term2/(n2-1));
 	}
 
+	/** Two-sided 95% critical value of the t distribution (rounding dof down, to stay conservative). */
+	public static double t95(double dof) {
+		int n = (int)Math.floor(dof);
+		if (n < 1)
+			return Double.POSITIVE_INFINITY;
+		if (n <= T95.length)
+			return T95[n-1];
+		
+		// Cornish-Fisher expansion around the normal quantile
+		double z = 1.959964;
+		double z3 = z*z*z, z5 = z3*z*z, z7 = z5*z*z;
+		return z + (z3+z)/(4*n) + (5*z5+16*z3+3*z)/(96.0*n*n) + (3*z7+19*z5+17*z3-15*z)/(384.0*n*n*n);
+	}
+	
+	private static final double[] T95 = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+		2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+		2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+	
+	/** Two-sided critical value of the t distribution at any significance level (rounding dof down, to stay conservative). */
+	public static double tCritical(double dof, double alpha) {
+		int n = (int)Math.floor(dof);
+		if (n < 1)
+			return Double.POSITIVE_INFINITY;
+		
+		// Bisect on the upper tail, which shrinks as t grows
+		double lo = 0, hi = 1;
+		while (tTail(hi, n) > alpha/2)
+			hi *= 2;
+		for (int i=0; i<100; i++) {
+			double mid = (lo+hi)/2;
+			if (tTail(mid, n) > alpha/2)
+				lo = mid;
+			else
+				hi = mid;
+		}
+		return hi;
+	}
+	
+	/** Chance that the t distribution with n degrees of freedom exceeds t >= 0. */
+	private static double tTail(double t, int n) {
+		return 0.5 * incompleteBeta(n/(n+t*t), n/2.0, 0.5);
+	}
+	
+	/** Regularized incomplete beta function I_x(a,b), by its continued fraction. */
+	private static double incompleteBeta(double x, double a, double b) {
+		if (x <= 0)
+			return 0;
+		if (x >= 1)
+			return 1;
+		
+		double front = Math.exp(logGamma(a+b) - logGamma(a) - logGamma(b) + a*Math.log(x) + b*Math.log(1-x));
+		if (x < (a+1)/(a+b+2))
+			return front * betaFraction(x, a, b) / a;
+		return 1 - front * betaFraction(1-x, b, a) / b;
+	}
+	
+	/** Continued fraction for the incomplete beta function, by the modified Lentz method. */
+	private static double betaFraction(double x, double a, double b) {
+		final double tiny = 1e-300;
+		double c = 1;
+		double d = 1 - (a+b)*x/(a+1);
+		d = 1 / (Math.abs(d) < tiny ? tiny : d);
+		double h = d;
+		
+		for (int m=1; m<=300; m++) {
+			double even = m*(b-m)*x / ((a+2*m-1)*(a+2*m));
+			d = 1 + even*d;
+			c = 1 + even/c;
+			d = 1 / (Math.abs(d) < tiny ? tiny : d);
+			c = (Math.abs(c) < tiny ? tiny : c);
+			h *= d*c;
+			
+			double odd = -(a+m)*(a+b+m)*x / ((a+2*m)*(a+2*m+1));
+			d = 1 + odd*d;
+			c = 1 + odd/c;
+			d = 1 / (Math.abs(d) < tiny ? tiny : d);
+			c = (Math.abs(c) < tiny ? tiny : c);
+			double step = d*c;
+			h *= step;
+			
+			if (Math.abs(step-1) < 1e-12)
+				break;
+		}
+		return h;
+	}
+	
+	/** Log of the gamma function, by the Lanczos approximation. */
+	private static double logGamma(double x) {
+		double[] cof = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+				-1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+		double y = x;
+		double tmp = x + 5.5;
+		tmp -= (x+0.5) * Math.log(tmp);
+		double series = 1.000000000190015;
+		for (double c : cof)
+			series += c / ++y;
+		return -tmp + Math.log(2.5066282746310005*series/x);
+	}
+	
+	/** Half the width of a 95% confidence interval on the mean of an array of doubles. */
+	public static double halfWidth95(double[] array) {
+		return t95(array.length-1) * Math.sqrt(variance(array)/array.length);
+	}
+
 	/** Average an array of doubles. */
 	public static double average(double[] array) {
 		double sum = 0;
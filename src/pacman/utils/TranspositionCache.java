@@ -0,0 +1,57 @@
+package pacman.utils;
+
+import pacman.game.Constants.MOVE;
+
+/**
+ * A bounded map from (position hash, move) to a value, for work that depends only on the
+ * position, like feature extraction. Each key has one slot and a new entry replaces the old,
+ * so the cache never grows past its capacity. Entries are immutable, so threads may share
+ * a cache without locks; a racing put just loses one entry.
+ */
+public class TranspositionCache<V> {
+
+	private final Object[] slots; // Entries, or null
+	private final int mask; // Slots - 1
+
+	/** Make room for a number of entries, rounded up to a power of two. */
+	public TranspositionCache(int capacity) {
+		int size = Integer.highestOneBit(Math.max(1, capacity-1)) << 1;
+		slots = new Object[size];
+		mask = size-1;
+	}
+
+	/** The value stored for this position and move, or null. */
+	@SuppressWarnings("unchecked")
+	public V get(long hash, MOVE move) {
+		Entry<V> entry = (Entry<V>)slots[slot(hash, move)];
+		if (entry != null && entry.hash == hash && entry.move == move)
+			return entry.value;
+		return null;
+	}
+
+	/** Store a value for this position and move. */
+	public void put(long hash, MOVE move, V value) {
+		slots[slot(hash, move)] = new Entry<V>(hash, move, value);
+	}
+
+	/** The slot of a key. Hashes are already well mixed. */
+	private int slot(long hash, MOVE move) {
+		return (int)(hash ^ (hash >>> 32) ^ (move.ordinal() * 0x9E3779B9)) & mask;
+	}
+
+	/**
+	 * One key and its value.
+	 */
+	private static class Entry<V> {
+
+		final long hash;
+		final MOVE move;
+		final V value;
+
+		Entry(long hash, MOVE move, V value) {
+			this.hash = hash;
+			this.move = move;
+			this.value = value;
+		}
+	}
+}